@@ -0,0 +1,79 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * @author DEVIAPHAN Small measurement harness for the benchmarks. An operation
+ *         is repeated for a warmup period and then for a measurement period;
+ *         throughput is reported in MB/s of input and allocation in bytes per
+ *         operation of the measuring thread. Periods are set with the system
+ *         properties bench.warmup and bench.time in seconds
+ */
+final class Bench {
+	/**
+	 * Measured operation, the result is kept so that it is not optimized away
+	 */
+	interface Operation {
+		Object run() throws Exception;
+	}
+
+	static volatile Object sink;
+
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	private final long warmupNanos;
+	private final long measureNanos;
+
+	Bench() {
+		this(Double.parseDouble(System.getProperty("bench.warmup", "3")),
+				Double.parseDouble(System.getProperty("bench.time", "5")));
+	}
+
+	Bench(double warmupSeconds, double measureSeconds) {
+		this.warmupNanos = (long) (warmupSeconds * 1e9);
+		this.measureNanos = (long) (measureSeconds * 1e9);
+	}
+
+	/**
+	 * Measures an operation and prints one row of the report
+	 *
+	 * @param name      name of the row
+	 * @param bytes     input bytes processed by one operation
+	 * @param operation measured operation
+	 * @return throughput in MB/s
+	 * @throws Exception
+	 */
+	double measure(String name, long bytes, Operation operation) throws Exception {
+		loop(warmupNanos, operation);
+
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		long operations = loop(measureNanos, operation);
+		long elapsed = System.nanoTime() - start;
+		long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+		double seconds = elapsed / 1e9;
+		double megabytes = bytes * (double) operations / (1 << 20);
+		double throughput = megabytes / seconds;
+		System.out.println(String.format(Locale.ROOT, "%-28s %12.1f MB/s %14.3f ms/op %16.1f B/op %10.2f B/byte", name,
+				throughput, elapsed / 1e6 / operations, allocated / (double) operations,
+				allocated / (double) operations / bytes));
+		return throughput;
+	}
+
+	static void header() {
+		System.out.println(String.format(Locale.ROOT, "%-28s %17s %20s %21s %17s", "benchmark", "throughput",
+				"time", "alloc", "alloc/input"));
+	}
+
+	private static long loop(long nanos, Operation operation) throws Exception {
+		long operations = 0;
+		long end = System.nanoTime() + nanos;
+		do {
+			sink = operation.run();
+			operations++;
+		} while (System.nanoTime() < end);
+		return operations;
+	}
+}
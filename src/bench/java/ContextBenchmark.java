@@ -0,0 +1,77 @@
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author DEVIAPHAN Measures the allocation per document of the singletons and
+ *         of a reused {@link ConversionContext}, then converts generated
+ *         documents on several threads with the contexts of the threads and
+ *         compares every result with the sequential conversion. The corpus
+ *         size is the first argument, 4k by default, and the number of threads
+ *         the second, 8 by default
+ */
+public class ContextBenchmark {
+	public static void main(String[] args) throws Exception {
+		long size = CorpusGenerator.parseSize(args.length > 0 ? args[0] : "4k");
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		File file = ConversionBenchmark.corpus(size);
+		String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		long bytes = file.length();
+		JSONObject jObject = JSONObject.getInstance();
+		XMLObject xmlObject = XMLObject.getInstance();
+		ConversionContext context = new ConversionContext();
+		Bench bench = new Bench();
+
+		System.out.println(file.getName() + " (" + bytes + " bytes)");
+		Bench.header();
+		bench.measure("singletons", bytes, () -> xmlObject.parseTokens(jObject.buildTokenBuffer(json)));
+		bench.measure("context", bytes, () -> context.convert(json));
+		bench.measure("context to writer", bytes, () -> {
+			NullWriter xml = new NullWriter();
+			context.convert(json, xml);
+			return xml;
+		});
+
+		List<String> documents = new ArrayList<>();
+		List<String> expected = new ArrayList<>();
+		for (long seed = 0; seed < threads * 4; seed++) {
+			CorpusGenerator generator = new CorpusGenerator(size, 2 + (int) (seed % 3), 8, "6:3:1", seed);
+			StringWriter document = new StringWriter((int) size + 1024);
+			generator.write(document);
+			documents.add(document.toString());
+			expected.add(xmlObject.parseTokens(jObject.buildTokenBuffer(document.toString())));
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int first = t;
+				results.add(pool.submit(() -> {
+					int mismatches = 0;
+					for (int round = 0; round < 200; round++) {
+						int i = (first + round) % documents.size();
+						if (!ConversionContext.forCurrentThread().convert(documents.get(i)).equals(expected.get(i))) {
+							mismatches++;
+						}
+					}
+					return mismatches;
+				}));
+			}
+			int mismatches = 0;
+			for (Future<Integer> result : results) {
+				mismatches += result.get();
+			}
+			System.out.println(threads + " threads converted " + threads * 200 + " documents, " + mismatches
+					+ " differ from the sequential conversion");
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,93 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author DEVIAPHAN Measures every stage of the conversion on generated
+ *         corpora: lexing, XML emitting, the whole in-memory conversion and
+ *         the single-pass streaming conversion. Corpus sizes are given as
+ *         arguments (1k, 1m, 1g ...), the shape of the corpus with the system
+ *         properties bench.depth, bench.width, bench.mix and bench.seed
+ */
+public class ConversionBenchmark {
+	public static void main(String[] args) throws Exception {
+		String[] sizes = args.length > 0 ? args : new String[] { "1k", "1m", "64m" };
+		long maxInMemory = CorpusGenerator.parseSize(System.getProperty("bench.maxInMemory", "256m"));
+		Bench bench = new Bench();
+
+		for (String size : sizes) {
+			File file = corpus(CorpusGenerator.parseSize(size));
+			long bytes = file.length();
+			String path = file.getPath();
+			System.out.println();
+			System.out.println(file.getName() + " (" + bytes + " bytes)");
+			Bench.header();
+
+			if (bytes <= maxInMemory) {
+				JSONObject jObject = JSONObject.getInstance();
+				XMLObject xmlObject = XMLObject.getInstance();
+				String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+				bench.measure("lex buildTokens", bytes, () -> jObject.buildTokens(json));
+				bench.measure("lex buildTokenBuffer", bytes, () -> jObject.buildTokenBuffer(json));
+				bench.measure("lex buildTokenBufferParallel", bytes,
+						() -> jObject.buildTokenBufferParallel(json, ForkJoinPool.commonPool()));
+
+				ArrayList<Token> tokens = jObject.buildTokens(json);
+				bench.measure("emit parseTokens(list)", bytes, () -> xmlObject.parseTokens(tokens));
+				TokenBuffer buffer = jObject.buildTokenBuffer(json);
+				bench.measure("emit parseTokens(buffer)", bytes, () -> xmlObject.parseTokens(buffer));
+				bench.measure("end-to-end jsonToXML", bytes, () -> Parser.getInstance().jsonToXML(path));
+			}
+
+			bench.measure("fused mapped file", bytes, () -> {
+				NullWriter xml = new NullWriter();
+				Parser.getInstance().jsonToXML(path, xml);
+				return xml;
+			});
+			bench.measure("fused reader", bytes, () -> {
+				NullWriter xml = new NullWriter();
+				try (Reader json = new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8)) {
+					Parser.getInstance().jsonToXML(json, xml);
+				}
+				return xml;
+			});
+		}
+	}
+
+	/**
+	 * Returns the corpus of the size with the shape from the system properties,
+	 * generating it on first use
+	 *
+	 * @param size approximate size in bytes
+	 * @return corpus file
+	 * @throws Exception
+	 */
+	static File corpus(long size) throws Exception {
+		CorpusGenerator generator = new CorpusGenerator(size, Integer.getInteger("bench.depth", 2),
+				Integer.getInteger("bench.width", 8), System.getProperty("bench.mix", "6:3:1"),
+				Long.getLong("bench.seed", 42L));
+		File dir = new File(System.getProperty("bench.dir", "build/corpus"));
+		File file = new File(dir, generator.name());
+		if (!file.exists()) {
+			dir.mkdirs();
+			File temp = new File(dir, generator.name() + ".tmp");
+			try (Writer out = new BufferedWriter(
+					new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8), 1 << 16)) {
+				generator.write(out);
+			}
+			if (!temp.renameTo(file)) {
+				throw new IllegalStateException("Cannot create " + file);
+			}
+		}
+		return file;
+	}
+}
@@ -0,0 +1,219 @@
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * @author DEVIAPHAN Generates reproducible JSON corpora for the benchmarks. The
+ *         document is an object with one array of records; the size, nesting
+ *         depth of the records, width of arrays and objects and the mix of
+ *         string, number and boolean values are configurable. The same
+ *         parameters and seed always give the same bytes
+ */
+public class CorpusGenerator {
+	private static final String[] WORDS = { "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel",
+			"india", "juliet", "kilo", "lima", "mike", "november", "oscar", "papa", "quebec", "romeo", "sierra",
+			"tango", "uniform", "victor", "whiskey", "xray", "yankee", "zulu" };
+
+	private final long size;
+	private final int depth;
+	private final int width;
+	private final int strings;
+	private final int numbers;
+	private final int bools;
+	private final long seed;
+
+	/**
+	 * @param size    approximate size of the document in bytes
+	 * @param depth   nesting depth of objects in a record, at least 1
+	 * @param width   number of scalar fields of an object and elements of an
+	 *                array
+	 * @param mix     weights of string, number and boolean values, for example
+	 *                "6:3:1"
+	 * @param seed    seed of the random generator
+	 */
+	public CorpusGenerator(long size, int depth, int width, String mix, long seed) {
+		String[] weights = mix.split(":");
+		if (weights.length != 3 || depth < 1 || width < 1) {
+			throw new IllegalArgumentException("Expected depth >= 1, width >= 1 and mix string:number:bool");
+		}
+		this.size = size;
+		this.depth = depth;
+		this.width = width;
+		this.strings = Integer.parseInt(weights[0]);
+		this.numbers = Integer.parseInt(weights[1]);
+		this.bools = Integer.parseInt(weights[2]);
+		this.seed = seed;
+		if (strings + numbers + bools <= 0) {
+			throw new IllegalArgumentException("Mix must have a positive weight: " + mix);
+		}
+	}
+
+	/**
+	 * @return name which identifies the parameters, usable as a file name
+	 */
+	public String name() {
+		return "corpus-" + size + "-d" + depth + "-w" + width + "-m" + strings + "_" + numbers + "_" + bools + "-s"
+				+ seed + ".json";
+	}
+
+	/**
+	 * Writes the document
+	 *
+	 * @param out destination, UTF-8 is used for the bytes
+	 * @return number of chars written
+	 * @throws IOException
+	 */
+	public long write(Writer out) throws IOException {
+		Random random = new Random(seed);
+		CountingWriter counter = new CountingWriter(out);
+		counter.write("{\"records\":[");
+		int index = 0;
+		do {
+			if (index > 0) {
+				counter.write(',');
+			}
+			writeObject(counter, random, depth, index++);
+		} while (counter.count < size - 2);
+		counter.write("]}");
+		counter.flush();
+		return counter.count;
+	}
+
+	private void writeObject(Writer out, Random random, int level, int index) throws IOException {
+		out.write("{\"id\":");
+		out.write(Integer.toString(index));
+		for (int i = 0; i < width; i++) {
+			out.write(",\"f");
+			out.write(Integer.toString(i));
+			out.write("\":");
+			writeScalar(out, random, kind(random));
+		}
+
+		int arrayKind = kind(random);
+		out.write(",\"items\":[");
+		for (int i = 0; i < width; i++) {
+			if (i > 0) {
+				out.write(',');
+			}
+			writeScalar(out, random, arrayKind);
+		}
+		out.write(']');
+
+		if (level > 1) {
+			out.write(",\"child\":");
+			writeObject(out, random, level - 1, index);
+		}
+		out.write('}');
+	}
+
+	private int kind(Random random) {
+		int value = random.nextInt(strings + numbers + bools);
+		if (value < strings) {
+			return 0;
+		}
+		return value < strings + numbers ? 1 : 2;
+	}
+
+	private void writeScalar(Writer out, Random random, int kind) throws IOException {
+		switch (kind) {
+		case 0:
+			out.write('"');
+			int words = 1 + random.nextInt(4);
+			for (int i = 0; i < words; i++) {
+				if (i > 0) {
+					out.write(' ');
+				}
+				out.write(WORDS[random.nextInt(WORDS.length)]);
+			}
+			out.write('"');
+			break;
+		case 1:
+			if (random.nextBoolean()) {
+				out.write('-');
+			}
+			out.write(Integer.toString(random.nextInt(100000)));
+			if (random.nextBoolean()) {
+				out.write('.');
+				out.write(Integer.toString(random.nextInt(1000)));
+			}
+			break;
+		default:
+			out.write(random.nextBoolean() ? "true" : "false");
+			break;
+		}
+	}
+
+	/**
+	 * Writes a corpus file
+	 *
+	 * @param args output file, size (with optional k/m/g suffix), and optionally
+	 *             depth, width, mix and seed
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: CorpusGenerator <file> <size[k|m|g]> [depth] [width] [mix] [seed]");
+			return;
+		}
+		CorpusGenerator generator = new CorpusGenerator(parseSize(args[1]),
+				args.length > 2 ? Integer.parseInt(args[2]) : 2, args.length > 3 ? Integer.parseInt(args[3]) : 8,
+				args.length > 4 ? args[4] : "6:3:1", args.length > 5 ? Long.parseLong(args[5]) : 42);
+		try (Writer out = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(args[0]), StandardCharsets.UTF_8), 1 << 16)) {
+			System.out.println("Written " + generator.write(out) + " chars to " + args[0]);
+		}
+	}
+
+	/**
+	 * @param size number with optional k, m or g suffix
+	 * @return number of bytes
+	 */
+	static long parseSize(String size) {
+		String lower = size.toLowerCase();
+		char unit = lower.charAt(lower.length() - 1);
+		long multiplier = unit == 'k' ? 1L << 10 : unit == 'm' ? 1L << 20 : unit == 'g' ? 1L << 30 : 1;
+		String digits = multiplier == 1 ? lower : lower.substring(0, lower.length() - 1);
+		return Long.parseLong(digits) * multiplier;
+	}
+
+	private static final class CountingWriter extends Writer {
+		private final Writer out;
+		private long count;
+
+		CountingWriter(Writer out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int c) throws IOException {
+			out.write(c);
+			count++;
+		}
+
+		@Override
+		public void write(String str) throws IOException {
+			out.write(str);
+			count += str.length();
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			out.write(cbuf, off, len);
+			count += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author DEVIAPHAN Load test of the conversion server. Sends the requests with
+ *         the given number in flight and prints the throughput and the latency
+ *         percentiles. Without a URL an embedded server is started on a free
+ *         port. Arguments: [url] [requests] [concurrency] [body size]
+ */
+public class LoadTest {
+	public static void main(String[] args) throws Exception {
+		String url = args.length > 0 && !args[0].equals("-") ? args[0] : null;
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+		int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+		long size = CorpusGenerator.parseSize(args.length > 3 ? args[3] : "4k");
+		if (System.getProperty("http.maxConnections") == null) {
+			System.setProperty("http.maxConnections", String.valueOf(concurrency));
+		}
+		if (System.getProperty(ConversionServer.MAX_IDLE_CONNECTIONS) == null) {
+			System.setProperty(ConversionServer.MAX_IDLE_CONNECTIONS, String.valueOf(concurrency));
+		}
+
+		ConversionServer server = null;
+		if (url == null) {
+			server = new ConversionServer(0, Math.max(size * 2, 1 << 20));
+			server.start();
+			url = "http://localhost:" + server.getPort() + ConversionServer.CONVERT_PATH;
+		}
+		StringWriter json = new StringWriter();
+		new CorpusGenerator(size, 2, 8, "6:3:1", 42).write(json);
+		byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+
+		try {
+			run(new URL(url), body, Math.min(concurrency, requests), concurrency, "warmup");
+			run(new URL(url), body, requests, concurrency, "measure");
+		} finally {
+			if (server != null) {
+				server.stop(1);
+			}
+		}
+		System.exit(0);
+	}
+
+	private static void run(URL url, byte[] body, int requests, int concurrency, String name)
+			throws InterruptedException {
+		long[] latencies = new long[requests];
+		AtomicInteger failures = new AtomicInteger();
+		Semaphore inFlight = new Semaphore(Math.min(concurrency, requests));
+		CountDownLatch done = new CountDownLatch(requests);
+		ExecutorService clients = ConversionServer.newRequestExecutor();
+		long start = System.nanoTime();
+
+		for (int i = 0; i < requests; i++) {
+			int index = i;
+			inFlight.acquire();
+			clients.execute(() -> {
+				long sent = System.nanoTime();
+				try {
+					if (post(url, body) != 200) {
+						failures.incrementAndGet();
+					}
+				} catch (IOException e) {
+					failures.incrementAndGet();
+				} finally {
+					latencies[index] = System.nanoTime() - sent;
+					inFlight.release();
+					done.countDown();
+				}
+			});
+		}
+		done.await();
+		long nanos = System.nanoTime() - start;
+		clients.shutdown();
+
+		Arrays.sort(latencies);
+		System.out.println(String.format(Locale.ROOT,
+				"%-8s %d requests, %d failed, %.1f req/s, p50 %.2f ms, p99 %.2f ms, max %.2f ms", name, requests,
+				failures.get(), requests / (nanos / 1e9), percentile(latencies, 50) / 1e6,
+				percentile(latencies, 99) / 1e6, latencies[latencies.length - 1] / 1e6));
+	}
+
+	private static int post(URL url, byte[] body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setFixedLengthStreamingMode(body.length);
+		connection.setRequestProperty("Content-Type", "application/json");
+		try (OutputStream output = connection.getOutputStream()) {
+			output.write(body);
+		}
+		int status = connection.getResponseCode();
+		// the response is read to the end so the connection is kept alive
+		try (InputStream input = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+			drain(input);
+		}
+		return status;
+	}
+
+	private static void drain(InputStream input) throws IOException {
+		if (input == null) {
+			return;
+		}
+		byte[] buffer = new byte[8192];
+		while (input.read(buffer) != -1) {
+			// only the status is checked
+		}
+	}
+
+	private static long percentile(long[] sorted, int percent) {
+		int index = (int) Math.ceil(sorted.length * percent / 100.0) - 1;
+		return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+	}
+}
@@ -0,0 +1,37 @@
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * @author DEVIAPHAN Measures the overhead of the conversion metrics: the same
+ *         files are converted without listeners and with
+ *         {@link ConversionMetrics}. Corpus sizes are given as arguments, 1k
+ *         and 1m by default
+ */
+public class MetricsBenchmark {
+	public static void main(String[] args) throws Exception {
+		String[] sizes = args.length > 0 ? args : new String[] { "1k", "1m" };
+		Parser parser = Parser.getInstance();
+		Bench bench = new Bench();
+
+		for (String size : sizes) {
+			File file = ConversionBenchmark.corpus(CorpusGenerator.parseSize(size));
+			long bytes = file.length();
+			String path = file.getPath();
+			System.out.println();
+			System.out.println(file.getName() + " (" + bytes + " bytes)");
+			Bench.header();
+
+			double off = bench.measure("jsonToXML without metrics", bytes, () -> parser.jsonToXML(path));
+			ConversionMetrics metrics = new ConversionMetrics();
+			parser.addListener(metrics);
+			double on;
+			try {
+				on = bench.measure("jsonToXML with metrics", bytes, () -> parser.jsonToXML(path));
+			} finally {
+				parser.removeListener(metrics);
+			}
+			System.out.println(String.format(Locale.ROOT, "overhead %.2f%%, %d conversions recorded, p50 %.1f us",
+					(off - on) / off * 100, metrics.getConversions(), metrics.getTotal().getP50Micros()));
+		}
+	}
+}
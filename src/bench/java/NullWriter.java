@@ -0,0 +1,39 @@
+import java.io.Writer;
+
+/**
+ * @author DEVIAPHAN Writer which drops everything, so that only the conversion
+ *         is measured
+ */
+final class NullWriter extends Writer {
+	private long count;
+
+	@Override
+	public void write(int c) {
+		count++;
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) {
+		count += len;
+	}
+
+	@Override
+	public void write(String str, int off, int len) {
+		count += len;
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * @return number of chars written
+	 */
+	long count() {
+		return count;
+	}
+}
@@ -0,0 +1,62 @@
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+/**
+ * @author DEVIAPHAN Compares the full conversion of an array of records with
+ *         projections which keep one field of twenty and exclude all but one.
+ *         The number of records is the first argument, 100k by default
+ */
+public class ProjectionBenchmark {
+	private static final int FIELDS = 20;
+
+	public static void main(String[] args) throws Exception {
+		int records = args.length > 0 ? (int) CorpusGenerator.parseSize(args[0]) : 100000;
+		File file = File.createTempFile("projection", ".json");
+		file.deleteOnExit();
+		Files.write(file.toPath(), records(records).getBytes(StandardCharsets.UTF_8));
+		String path = file.getPath();
+		long bytes = file.length();
+		Parser parser = Parser.getInstance();
+		Bench bench = new Bench();
+
+		System.out.println(records + " records (" + bytes + " bytes)");
+		Bench.header();
+		double full = bench.measure("full conversion", bytes, () -> parser.jsonToXML(path));
+		Projection include = Projection.include("records[].f0");
+		double included = bench.measure("include records[].f0", bytes, () -> parser.jsonToXML(path, include));
+		Projection exclude = Projection.exclude("records[].nested");
+		double excluded = bench.measure("exclude records[].nested", bytes, () -> parser.jsonToXML(path, exclude));
+		System.out.println(String.format(Locale.ROOT, "include costs %.1f%%, exclude costs %.1f%% of the full conversion",
+				full / included * 100, full / excluded * 100));
+
+		String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		JSONObject jObject = JSONObject.getInstance();
+		double lex = bench.measure("lex full", bytes, () -> jObject.buildTokenBuffer(json));
+		double lexIncluded = bench.measure("lex include records[].f0", bytes,
+				() -> jObject.buildTokenBuffer(json, include));
+		System.out.println(String.format(Locale.ROOT, "lexing with the projection costs %.1f%% of the full lexing",
+				lex / lexIncluded * 100));
+	}
+
+	private static String records(int count) {
+		StringBuilder json = new StringBuilder(count * 400);
+		json.append("{\"records\":[");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"f0\":").append(i);
+			json.append(",\"nested\":{");
+			for (int f = 1; f < FIELDS; f++) {
+				if (f > 1) {
+					json.append(',');
+				}
+				json.append("\"f").append(f).append("\":\"value ").append(i % 1000).append('-').append(f).append('"');
+			}
+			json.append("}}");
+		}
+		return json.append("]}").toString();
+	}
+}
@@ -0,0 +1,36 @@
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * @author DEVIAPHAN Measures both directions on a generated document: JSON to
+ *         XML with {@link XMLEmitter} and the XML back to JSON with
+ *         {@link XMLTokenizer} and {@link JSONWriter}, both driven by the same
+ *         token loop. The corpus size is the first argument, 4m by default
+ */
+public class ReverseBenchmark {
+	public static void main(String[] args) throws Exception {
+		long size = CorpusGenerator.parseSize(args.length > 0 ? args[0] : "4m");
+		File file = ConversionBenchmark.corpus(size);
+		String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		JSONObject jObject = JSONObject.getInstance();
+		byte[] xml = XMLObject.getInstance().parseTokens(jObject.buildTokenBuffer(json))
+				.getBytes(StandardCharsets.UTF_8);
+		Bench bench = new Bench();
+
+		System.out.println(file.getName() + " (" + file.length() + " bytes), XML " + xml.length + " bytes");
+		Bench.header();
+		bench.measure("JSON to XML", file.length(), () -> {
+			NullWriter out = new NullWriter();
+			jObject.parse(new JSONTokenizer(new StringReader(json)), new XMLEmitter(out));
+			return out;
+		});
+		bench.measure("XML to JSON", xml.length, () -> {
+			NullWriter out = new NullWriter();
+			jObject.parse(new XMLTokenizer(new ByteArrayInputStream(xml)), new JSONWriter(out));
+			return out;
+		});
+	}
+}
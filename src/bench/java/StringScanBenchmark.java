@@ -0,0 +1,63 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author DEVIAPHAN Measures the conversion of string-heavy documents by the
+ *         lexer and {@link XMLEmitter}: plain text, text with an escape and a
+ *         char which is XML-escaped every few chars, and the same escaped
+ *         document lexed from its bytes by the structural index. The number of
+ *         records is the first argument, 100k by default, and the distance
+ *         between the escapes the second, 16 by default
+ */
+public class StringScanBenchmark {
+	private static final String[] ESCAPES = { "\\\"", "\\n", "\\u00e9", "\\\\", "&", "<" };
+
+	public static void main(String[] args) throws Exception {
+		int records = args.length > 0 ? (int) CorpusGenerator.parseSize(args[0]) : 100000;
+		int every = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		String plain = records(records, 0);
+		String escaped = records(records, every);
+		byte[] utf8 = escaped.getBytes(StandardCharsets.UTF_8);
+		JSONObject jObject = JSONObject.getInstance();
+		Bench bench = new Bench();
+
+		System.out.println(records + " records, an escape every " + every + " chars (" + utf8.length + " bytes)");
+		Bench.header();
+		bench.measure("plain text", plain.length(), () -> {
+			NullWriter out = new NullWriter();
+			jObject.parse(jObject.buildTokenBuffer(plain), new XMLEmitter(out));
+			return out;
+		});
+		bench.measure("escaped text", escaped.length(), () -> {
+			NullWriter out = new NullWriter();
+			jObject.parse(jObject.buildTokenBuffer(escaped), new XMLEmitter(out));
+			return out;
+		});
+		bench.measure("escaped text, index", utf8.length, () -> {
+			NullWriter out = new NullWriter();
+			jObject.parse(jObject.buildTokenBuffer(utf8), new XMLEmitter(out));
+			return out;
+		});
+	}
+
+	private static String records(int count, int every) {
+		StringBuilder text = new StringBuilder(256);
+		for (int i = 0; text.length() < 200; i++) {
+			if (every > 0 && i % every == every - 1) {
+				text.append(ESCAPES[i / every % ESCAPES.length]);
+			} else {
+				text.append(i % 7 == 6 ? ' ' : (char) ('a' + i % 26));
+			}
+		}
+		StringBuilder json = new StringBuilder(count * (text.length() + 64));
+		json.append("{\"records\":[");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"id\":").append(i);
+			json.append(",\"body\":\"").append(text).append('"');
+			json.append(",\"active\":true}");
+		}
+		return json.append("]}").toString();
+	}
+}
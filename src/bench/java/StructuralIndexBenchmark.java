@@ -0,0 +1,50 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * @author DEVIAPHAN Compares the lexing of a string-heavy document by
+ *         {@link JSONObject#buildTokens(String)}, by the char loop and by the
+ *         structural index. The number of records is the first argument, 100k
+ *         by default, and the length of the text values the second, 200 by
+ *         default. The char loop is measured with the decoding of the bytes, as
+ *         the index does it
+ */
+public class StructuralIndexBenchmark {
+	public static void main(String[] args) throws Exception {
+		int records = args.length > 0 ? (int) CorpusGenerator.parseSize(args[0]) : 100000;
+		int textLength = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		byte[] utf8 = records(records, textLength).getBytes(StandardCharsets.UTF_8);
+		String json = new String(utf8, StandardCharsets.UTF_8);
+		JSONObject jObject = JSONObject.getInstance();
+		long bytes = utf8.length;
+		Bench bench = new Bench();
+
+		System.out.println(records + " records with " + textLength + " chars of text (" + bytes + " bytes)");
+		Bench.header();
+		double tokens = bench.measure("buildTokens", bytes, () -> jObject.buildTokens(json));
+		double chars = bench.measure("decode + char loop", bytes,
+				() -> jObject.buildTokenBuffer(new String(utf8, StandardCharsets.UTF_8)));
+		double indexed = bench.measure("structural index", bytes, () -> jObject.buildTokenBuffer(utf8));
+		System.out.println(String.format(Locale.ROOT, "the index is %.2fx as fast as buildTokens and %.2fx as fast as"
+				+ " the char loop", indexed / tokens, indexed / chars));
+	}
+
+	private static String records(int count, int textLength) {
+		StringBuilder text = new StringBuilder(textLength);
+		for (int i = 0; text.length() < textLength; i++) {
+			text.append(i % 7 == 6 ? ' ' : (char) ('a' + i % 26));
+		}
+		StringBuilder json = new StringBuilder(count * (textLength * 2 + 64));
+		json.append("{\"records\":[");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"id\":").append(i);
+			json.append(",\"title\":\"").append(text, 0, textLength / 4).append('"');
+			json.append(",\"body\":\"").append(text).append('"');
+			json.append(",\"active\":true}");
+		}
+		return json.append("]}").toString();
+	}
+}
@@ -0,0 +1,55 @@
+/**
+ * @author DEVIAPHAN Measures the XML emitting of an array of records with and
+ *         without the tag cache. The number of records is the first argument,
+ *         1M by default; allocation per operation shows the garbage of the
+ *         repeated keys
+ */
+public class TagCacheBenchmark {
+	private static final String[] FIELDS = { "id", "name", "email", "active", "score", "city", "country", "zip",
+			"phone", "created", "updated", "tags" };
+
+	public static void main(String[] args) throws Exception {
+		int records = args.length > 0 ? (int) CorpusGenerator.parseSize(args[0]) : 1000000;
+		String json = records(records);
+		TokenBuffer tokens = JSONObject.getInstance().buildTokenBuffer(json);
+		long bytes = json.length();
+		Bench bench = new Bench();
+
+		System.out.println(records + " records (" + bytes + " chars)");
+		Bench.header();
+		for (int capacity : new int[] { 0, TagCache.DEFAULT_CAPACITY }) {
+			bench.measure("emit tag cache " + capacity, bytes, () -> emit(tokens, capacity));
+			System.out.println("  " + emit(tokens, capacity).getTagCache());
+		}
+	}
+
+	private static XMLEmitter emit(TokenBuffer tokens, int capacity) throws Exception {
+		XMLEmitter emitter = new XMLEmitter(new NullWriter(), true, capacity);
+		JSONObject.getInstance().parse(tokens, emitter);
+		return emitter;
+	}
+
+	private static String records(int count) {
+		StringBuilder json = new StringBuilder(count * 160);
+		json.append("{\"records\":[");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append('{');
+			for (int f = 0; f < FIELDS.length; f++) {
+				if (f > 0) {
+					json.append(',');
+				}
+				json.append('"').append(FIELDS[f]).append("\":");
+				if (f % 3 == 0) {
+					json.append(i + f);
+				} else {
+					json.append('"').append(FIELDS[f]).append(i % 97).append('"');
+				}
+			}
+			json.append('}');
+		}
+		return json.append("]}").toString();
+	}
+}
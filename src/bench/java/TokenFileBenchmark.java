@@ -0,0 +1,44 @@
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * @author DEVIAPHAN Compares converting a generated document from its JSON with
+ *         converting it from a saved {@link TokenFile}, which skips lexing and
+ *         checking. The corpus size is the first argument, 16m by default
+ */
+public class TokenFileBenchmark {
+	public static void main(String[] args) throws Exception {
+		long size = CorpusGenerator.parseSize(args.length > 0 ? args[0] : "16m");
+		File file = ConversionBenchmark.corpus(size);
+		String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		long bytes = file.length();
+		JSONObject jObject = JSONObject.getInstance();
+		XMLObject xmlObject = XMLObject.getInstance();
+		Path tokenPath = Files.createTempFile("tokens", ".jxtk");
+		Bench bench = new Bench();
+
+		try {
+			TokenFile.write(jObject.buildTokenBuffer(json), tokenPath);
+			System.out.println(file.getName() + " (" + bytes + " bytes), token file " + Files.size(tokenPath)
+					+ " bytes");
+			Bench.header();
+			bench.measure("lex and emit", bytes, () -> xmlObject.parseTokens(jObject.buildTokenBuffer(json)));
+			bench.measure("token file to NullWriter", bytes, () -> {
+				NullWriter xml = new NullWriter();
+				try (TokenFile tokens = TokenFile.open(tokenPath)) {
+					xmlObject.parseTokens(tokens, xml);
+				}
+				return xml;
+			});
+			bench.measure("token file", bytes, () -> {
+				try (TokenFile tokens = TokenFile.open(tokenPath)) {
+					return xmlObject.parseTokens(tokens);
+				}
+			});
+		} finally {
+			Files.delete(tokenPath);
+		}
+	}
+}
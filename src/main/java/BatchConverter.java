@@ -0,0 +1,225 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @author DEVIAPHAN The class converts many JSON files on a pool of workers.
+ *         Every file is converted by the single-pass streaming mode, a file
+ *         which fails does not stop the others. Compressed inputs are
+ *         recognized by their extension, see {@link Codec#forPath(String)}
+ */
+public class BatchConverter {
+	private static final int OUTPUT_BUFFER = 1 << 16;
+
+	private final Parser parser = Parser.getInstance();
+	private final int threads;
+	private final Codec outputCodec;
+
+	/**
+	 * @param threads number of workers
+	 */
+	public BatchConverter(int threads) {
+		this(threads, Codec.NONE);
+	}
+
+	/**
+	 * @param threads     number of workers
+	 * @param outputCodec compression of the XML files
+	 */
+	public BatchConverter(int threads, Codec outputCodec) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+		}
+		this.threads = threads;
+		this.outputCodec = outputCodec;
+	}
+
+	/**
+	 * Finds the files to convert
+	 *
+	 * @param root directory to search recursively
+	 * @param glob pattern of the file paths relative to the root, for example
+	 *             "**.json", or null for all files
+	 * @return regular files in the directory
+	 * @throws IOException
+	 */
+	public static List<Path> find(Path root, String glob) throws IOException {
+		PathMatcher matcher = glob == null ? null : FileSystems.getDefault().getPathMatcher("glob:" + glob);
+		try (Stream<Path> paths = Files.walk(root)) {
+			return paths.filter(Files::isRegularFile)
+					.filter(path -> matcher == null || matcher.matches(root.relativize(path)))
+					.filter(path -> !isXML(path.getFileName().toString())).sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Converts the files
+	 *
+	 * @param inputs     JSON files
+	 * @param inputRoot  directory the input paths are relative to
+	 * @param outputRoot directory for the XML files with the same relative
+	 *                   paths, or null to write every XML next to its JSON
+	 * @return results of all files
+	 * @throws InterruptedException
+	 */
+	public Summary convert(List<Path> inputs, Path inputRoot, Path outputRoot) throws InterruptedException {
+		ConcurrentLinkedQueue<Result> results = new ConcurrentLinkedQueue<>();
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		long start = System.nanoTime();
+
+		for (Path input : inputs) {
+			Path output = target(input, inputRoot, outputRoot, outputCodec);
+			workers.execute(() -> results.add(convert(input, output)));
+		}
+		workers.shutdown();
+		workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		return new Summary(new ArrayList<>(results), System.nanoTime() - start);
+	}
+
+	/**
+	 * @param input      JSON file
+	 * @param inputRoot  directory the input path is relative to
+	 * @param outputRoot directory for the XML files or null
+	 * @param output     compression of the XML file
+	 * @return path of the XML file
+	 */
+	static Path target(Path input, Path inputRoot, Path outputRoot, Codec output) {
+		Path relative = outputRoot == null ? input : outputRoot.resolve(inputRoot.relativize(input));
+		String name = relative.getFileName().toString();
+		name = Codec.forPath(name).strip(name);
+		if (name.toLowerCase(Locale.ROOT).endsWith(".json")) {
+			name = name.substring(0, name.length() - ".json".length());
+		}
+		return relative.resolveSibling(name + ".xml" + output.extension());
+	}
+
+	private static boolean isXML(String name) {
+		return Codec.forPath(name).strip(name).endsWith(".xml");
+	}
+
+	private Result convert(Path input, Path output) {
+		long start = System.nanoTime();
+		String error = null;
+		long bytes = 0;
+		try {
+			bytes = Files.size(input);
+			if (output.getParent() != null) {
+				Files.createDirectories(output.getParent());
+			}
+			String path = input.toString();
+			parser.jsonToXML(path, Codec.forPath(path), output.toString(), outputCodec, OUTPUT_BUFFER);
+		} catch (IOException | JSONException | RuntimeException e) {
+			error = e.toString();
+			try {
+				Files.deleteIfExists(output);
+			} catch (IOException ignored) {
+				// the error of the conversion is reported
+			}
+		}
+		return new Result(input, bytes, System.nanoTime() - start, error);
+	}
+
+	/**
+	 * @author DEVIAPHAN Conversion result of one file
+	 */
+	public static class Result {
+		private final Path path;
+		private final long bytes;
+		private final long nanos;
+		private final String error;
+
+		Result(Path path, long bytes, long nanos, String error) {
+			this.path = path;
+			this.bytes = bytes;
+			this.nanos = nanos;
+			this.error = error;
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return description of the failure or null if the file was converted
+		 */
+		public String getError() {
+			return error;
+		}
+	}
+
+	/**
+	 * @author DEVIAPHAN Results of a batch
+	 */
+	public static class Summary {
+		private final List<Result> results;
+		private final long nanos;
+
+		Summary(List<Result> results, long nanos) {
+			this.results = Collections.unmodifiableList(results);
+			this.nanos = nanos;
+		}
+
+		public List<Result> getResults() {
+			return results;
+		}
+
+		public List<Result> getFailures() {
+			return results.stream().filter(result -> result.error != null).collect(Collectors.toList());
+		}
+
+		/**
+		 * @param count maximal number of files
+		 * @return slowest files, the slowest first
+		 */
+		public List<Result> getSlowest(int count) {
+			return results.stream().sorted(Comparator.comparingLong(Result::getNanos).reversed()).limit(count)
+					.collect(Collectors.toList());
+		}
+
+		/**
+		 * Prints files/s, MB/s, failures and the slowest files
+		 *
+		 * @param out destination of the report
+		 */
+		public void print(PrintStream out) {
+			double seconds = nanos / 1e9;
+			long bytes = results.stream().mapToLong(Result::getBytes).sum();
+			List<Result> failures = getFailures();
+
+			out.println(String.format(Locale.ROOT, "Converted %d files (%d failed) in %.2f s: %.1f files/s, %.1f MB/s",
+					results.size(), failures.size(), seconds, results.size() / seconds,
+					bytes / seconds / (1 << 20)));
+			for (Result failure : failures) {
+				out.println("FAILED " + failure.path + ": " + failure.error);
+			}
+			out.println("Slowest files:");
+			for (Result result : getSlowest(10)) {
+				out.println(String.format(Locale.ROOT, "%10.1f ms %12d bytes  %s", result.nanos / 1e6, result.bytes,
+						result.path));
+			}
+		}
+	}
+}
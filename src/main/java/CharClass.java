@@ -0,0 +1,180 @@
+/**
+ * @author DEVIAPHAN Precomputed classes of JSON characters. The lexers look up
+ *         the class of a char in the table instead of testing it against
+ *         predicates and regular expressions, so no object is created for a
+ *         scanned char
+ */
+final class CharClass {
+	static final int OTHER = 0;
+	static final int SPACE = 1;
+	static final int DIGIT = 2;
+	static final int MINUS = 3;
+	static final int DOT = 4;
+	static final int LETTER = 5;
+	static final int QUOTE = 6;
+	static final int COMMA = 7;
+	static final int OPEN_OBJECT = 8;
+	static final int CLOSE_OBJECT = 9;
+	static final int OPEN_ARRAY = 10;
+	static final int CLOSE_ARRAY = 11;
+
+	private static final byte[] TABLE = new byte[128];
+	private static final boolean[] NUMERIC = new boolean[128];
+
+	static {
+		TABLE[' '] = SPACE;
+		TABLE['\t'] = SPACE;
+		TABLE['\n'] = SPACE;
+		TABLE['\u000B'] = SPACE;
+		TABLE['\f'] = SPACE;
+		TABLE['\r'] = SPACE;
+		for (char c = '0'; c <= '9'; c++) {
+			TABLE[c] = DIGIT;
+		}
+		for (char c = 'a'; c <= 'z'; c++) {
+			TABLE[c] = LETTER;
+			TABLE[Character.toUpperCase(c)] = LETTER;
+		}
+		TABLE['-'] = MINUS;
+		TABLE['.'] = DOT;
+		TABLE['"'] = QUOTE;
+		TABLE[','] = COMMA;
+		TABLE['{'] = OPEN_OBJECT;
+		TABLE['}'] = CLOSE_OBJECT;
+		TABLE['['] = OPEN_ARRAY;
+		TABLE[']'] = CLOSE_ARRAY;
+
+		for (int c = 0; c < TABLE.length; c++) {
+			NUMERIC[c] = TABLE[c] == DIGIT || TABLE[c] == MINUS || TABLE[c] == DOT;
+		}
+	}
+
+	private CharClass() {
+	}
+
+	/**
+	 * @param character any char
+	 * @return one of the class constants
+	 */
+	static int of(char character) {
+		return character < 128 ? TABLE[character] : OTHER;
+	}
+
+	static boolean isSpace(char character) {
+		return character < 128 && TABLE[character] == SPACE;
+	}
+
+	static boolean isDigit(char character) {
+		return character < 128 && TABLE[character] == DIGIT;
+	}
+
+	static boolean isLetter(char character) {
+		return character < 128 && TABLE[character] == LETTER;
+	}
+
+	/**
+	 * @return true for a digit, minus or dot
+	 */
+	static boolean isNumeric(char character) {
+		return character < 128 && NUMERIC[character];
+	}
+
+	/**
+	 * Checks the number format -?\d+(\.\d+)? without regular expressions
+	 *
+	 * @param chars source of the number
+	 * @param from  index of the first char
+	 * @param to    index after the last char
+	 * @return true if the chars form a number
+	 */
+	static boolean isNumber(CharSequence chars, int from, int to) {
+		int i = from;
+		if (i < to && chars.charAt(i) == '-') {
+			i++;
+		}
+		int digits = i;
+		while (i < to && isDigit(chars.charAt(i))) {
+			i++;
+		}
+		if (i == digits) {
+			return false;
+		}
+		if (i < to && chars.charAt(i) == '.') {
+			i++;
+			int fraction = i;
+			while (i < to && isDigit(chars.charAt(i))) {
+				i++;
+			}
+			if (i == fraction) {
+				return false;
+			}
+		}
+		return i == to;
+	}
+
+	/**
+	 * Same check as {@link #isNumber(CharSequence, int, int)} for a char array
+	 */
+	static boolean isNumber(char[] chars, int from, int to) {
+		int i = from;
+		if (i < to && chars[i] == '-') {
+			i++;
+		}
+		int digits = i;
+		while (i < to && isDigit(chars[i])) {
+			i++;
+		}
+		if (i == digits) {
+			return false;
+		}
+		if (i < to && chars[i] == '.') {
+			i++;
+			int fraction = i;
+			while (i < to && isDigit(chars[i])) {
+				i++;
+			}
+			if (i == fraction) {
+				return false;
+			}
+		}
+		return i == to;
+	}
+
+	/**
+	 * @return true if the chars are true or false in any case
+	 */
+	static boolean isBool(CharSequence chars, int from, int to) {
+		return regionEquals(chars, from, to, "true") || regionEquals(chars, from, to, "false");
+	}
+
+	/**
+	 * Same check as {@link #isBool(CharSequence, int, int)} for a char array
+	 */
+	static boolean isBool(char[] chars, int from, int to) {
+		return regionEquals(chars, from, to, "true") || regionEquals(chars, from, to, "false");
+	}
+
+	private static boolean regionEquals(CharSequence chars, int from, int to, String word) {
+		if (to - from != word.length()) {
+			return false;
+		}
+		for (int i = from; i < to; i++) {
+			if (Character.toLowerCase(chars.charAt(i)) != word.charAt(i - from)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean regionEquals(char[] chars, int from, int to, String word) {
+		if (to - from != word.length()) {
+			return false;
+		}
+		for (int i = from; i < to; i++) {
+			if (Character.toLowerCase(chars[i]) != word.charAt(i - from)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,220 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * @author DEVIAPHAN Compression of the JSON input and the XML output. The
+ *         streams (de)compress on the fly, so neither side exists in full
+ *         uncompressed
+ */
+public enum Codec {
+	NONE(""), GZIP(".gz"), DEFLATE(".deflate");
+
+	private final String extension;
+
+	Codec(String extension) {
+		this.extension = extension;
+	}
+
+	/**
+	 * Chooses the codec by the extension of a file name: ".gz" for gzip,
+	 * ".deflate" for zlib deflate, anything else is not compressed
+	 *
+	 * @param name name or path of the file
+	 * @return codec of the file
+	 */
+	public static Codec forPath(String name) {
+		String lower = name.toLowerCase(Locale.ROOT);
+		for (Codec codec : values()) {
+			if (codec != NONE && lower.endsWith(codec.extension)) {
+				return codec;
+			}
+		}
+		return NONE;
+	}
+
+	/**
+	 * @return extension of the compressed files, empty for {@link #NONE}
+	 */
+	public String extension() {
+		return extension;
+	}
+
+	/**
+	 * @param name name or path of a file
+	 * @return the name without the extension of this codec
+	 */
+	public String strip(String name) {
+		if (this != NONE && name.toLowerCase(Locale.ROOT).endsWith(extension)) {
+			return name.substring(0, name.length() - extension.length());
+		}
+		return name;
+	}
+
+	/**
+	 * Wraps a compressed stream, closing the result ends the decompressor and
+	 * closes the stream, {@link #release(InputStream)} ends the decompressor
+	 * only
+	 *
+	 * @param in         compressed stream
+	 * @param bufferSize size of the buffer of the compressed bytes
+	 * @return stream of the decompressed bytes
+	 * @throws IOException if the gzip header is invalid
+	 */
+	public InputStream decompress(InputStream in, int bufferSize) throws IOException {
+		switch (this) {
+		case GZIP:
+			return new GzipInput(in, bufferSize);
+		case DEFLATE:
+			return new DeflateInput(in, bufferSize);
+		default:
+			return in;
+		}
+	}
+
+	/**
+	 * Wraps a stream which receives the compressed bytes. The data is complete
+	 * after {@link #finish(OutputStream)} or closing the result, either ends
+	 * the compressor; {@link #release(OutputStream)} ends it without the rest
+	 * of the data
+	 *
+	 * @param out        destination of the compressed bytes
+	 * @param bufferSize size of the buffer of the compressed bytes
+	 * @return stream which compresses the bytes written to it
+	 * @throws IOException if the gzip header cannot be written
+	 */
+	public OutputStream compress(OutputStream out, int bufferSize) throws IOException {
+		switch (this) {
+		case GZIP:
+			return new GzipOutput(out, bufferSize);
+		case DEFLATE:
+			return new DeflateOutput(out, bufferSize);
+		default:
+			return out;
+		}
+	}
+
+	/**
+	 * Writes the rest of the compressed data without closing the destination
+	 *
+	 * @param compressed stream returned by {@link #compress(OutputStream, int)}
+	 * @throws IOException
+	 */
+	public void finish(OutputStream compressed) throws IOException {
+		if (compressed instanceof DeflaterOutputStream) {
+			((DeflaterOutputStream) compressed).finish();
+		}
+		compressed.flush();
+	}
+
+	/**
+	 * Ends the decompressor of a stream without closing the compressed stream,
+	 * for a conversion which does not own it. It may be called after an error
+	 * and more than once
+	 *
+	 * @param decompressed stream returned by {@link #decompress(InputStream, int)}
+	 */
+	public static void release(InputStream decompressed) {
+		if (decompressed instanceof Releasable) {
+			((Releasable) decompressed).release();
+		}
+	}
+
+	/**
+	 * Ends the compressor of a stream without closing the destination. The
+	 * compressed data is complete only if it was finished before
+	 *
+	 * @param compressed stream returned by {@link #compress(OutputStream, int)}
+	 */
+	public static void release(OutputStream compressed) {
+		if (compressed instanceof Releasable) {
+			((Releasable) compressed).release();
+		}
+	}
+
+	/**
+	 * @author DEVIAPHAN Stream whose native (de)compressor can be ended apart
+	 *         from the stream it wraps
+	 */
+	private interface Releasable {
+		void release();
+	}
+
+	private static final class GzipInput extends GZIPInputStream implements Releasable {
+		GzipInput(InputStream in, int bufferSize) throws IOException {
+			super(in, bufferSize);
+		}
+
+		@Override
+		public void release() {
+			inf.end();
+		}
+	}
+
+	private static final class DeflateInput extends InflaterInputStream implements Releasable {
+		DeflateInput(InputStream in, int bufferSize) {
+			super(in, new Inflater(), bufferSize);
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				inf.end();
+			}
+		}
+
+		@Override
+		public void release() {
+			inf.end();
+		}
+	}
+
+	private static final class GzipOutput extends GZIPOutputStream implements Releasable {
+		GzipOutput(OutputStream out, int bufferSize) throws IOException {
+			super(out, bufferSize);
+		}
+
+		@Override
+		public void finish() throws IOException {
+			try {
+				super.finish();
+			} finally {
+				def.end();
+			}
+		}
+
+		@Override
+		public void release() {
+			def.end();
+		}
+	}
+
+	private static final class DeflateOutput extends DeflaterOutputStream implements Releasable {
+		DeflateOutput(OutputStream out, int bufferSize) {
+			super(out, new Deflater(), bufferSize);
+		}
+
+		@Override
+		public void finish() throws IOException {
+			try {
+				super.finish();
+			} finally {
+				def.end();
+			}
+		}
+
+		@Override
+		public void release() {
+			def.end();
+		}
+	}
+}
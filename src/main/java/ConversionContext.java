@@ -0,0 +1,245 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * @author DEVIAPHAN Scratch state of conversions: the token buffer, the syntax
+ *         stack, the XML emitter with its tag cache, the XML builder and the
+ *         read and char buffers. Everything is reset after a conversion and
+ *         reused by the next one, so a document of a size seen before
+ *         allocates only its JSON and XML strings. A context is used by one
+ *         thread at a time; {@link #forCurrentThread()} keeps one per thread.
+ *         Buffers which grew above the limits for a large document are
+ *         dropped on reset
+ */
+public final class ConversionContext {
+	static final int MAX_RETAINED_TOKENS = 1 << 20;
+	static final int MAX_RETAINED_CHARS = 1 << 22;
+	private static final int MAX_RETAINED_SCRATCH = 1 << 16;
+	private static final ThreadLocal<ConversionContext> CONTEXTS = ThreadLocal.withInitial(ConversionContext::new);
+
+	private final JSONObject jObject = JSONObject.getInstance();
+	private final TokenBuffer tokens = new TokenBuffer(null, 1024);
+	private final JSONSyntax syntax = new JSONSyntax();
+	private final XMLEmitter emitter;
+	private StringBuilder xml = new StringBuilder(4096);
+	private StringBuilderWriter xmlWriter = new StringBuilderWriter(xml);
+	private char[] chars = new char[64];
+	private byte[] bytes = new byte[8192];
+	private boolean busy;
+
+	public ConversionContext() {
+		this(TagCache.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param tagCacheSize maximal number of cached tags, 0 disables the cache
+	 */
+	public ConversionContext(int tagCacheSize) {
+		emitter = new XMLEmitter(xmlWriter, true, tagCacheSize);
+	}
+
+	/**
+	 * Returns the context of the current thread. A conversion which runs
+	 * inside another one on the same thread gets a new context
+	 *
+	 * @return context which is not in use
+	 */
+	public static ConversionContext forCurrentThread() {
+		ConversionContext context = CONTEXTS.get();
+		return context.busy ? new ConversionContext() : context;
+	}
+
+	/**
+	 * Converts JSON to XML
+	 *
+	 * @param json receive file
+	 * @return xml string
+	 * @throws JSONException
+	 */
+	public String convert(String json) throws JSONException {
+		begin();
+		try {
+			lex(json);
+			return emit();
+		} finally {
+			reset();
+		}
+	}
+
+	/**
+	 * Converts JSON to XML written to the writer, which is flushed but not
+	 * closed
+	 *
+	 * @param json receive file
+	 * @param out  destination of the XML
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public void convert(String json, Writer out) throws IOException, JSONException {
+		begin();
+		try {
+			lex(json);
+			emitter.reset(out, XMLEmitter.isRootWrapped(firstValue()));
+			chars = jObject.parse(tokens, emitter, chars);
+		} finally {
+			reset();
+		}
+	}
+
+	/**
+	 * Converts a JSON file to XML, the file is read into the buffer of the
+	 * context
+	 *
+	 * @param file path to the JSON file
+	 * @return xml string
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public String convert(Path file) throws IOException, JSONException {
+		begin();
+		try {
+			lex(read(file));
+			return emit();
+		} finally {
+			reset();
+		}
+	}
+
+	/**
+	 * Converts a JSON object to the XML of an element of the array which is
+	 * the first value of the root object. The header and the root tag are not
+	 * written
+	 *
+	 * @param json     receive object
+	 * @param arrayKey key of the array, the tag of the element
+	 * @return xml fragment
+	 * @throws JSONException
+	 */
+	String convertElement(String json, String arrayKey) throws JSONException {
+		begin();
+		try {
+			lex(json);
+			xml.setLength(0);
+			emitter.resetInsideRootArray(xmlWriter, arrayKey);
+			return write();
+		} finally {
+			reset();
+		}
+	}
+
+	/**
+	 * @return cache of the tags, kept from one document to the next
+	 */
+	public TagCache getTagCache() {
+		return emitter.getTagCache();
+	}
+
+	/**
+	 * Drops the references to the last document and the buffers which grew
+	 * above the limits. Called after every conversion
+	 */
+	public void reset() {
+		tokens.reset(null, MAX_RETAINED_TOKENS);
+		syntax.reset();
+		if (xml.capacity() > MAX_RETAINED_CHARS) {
+			xml = new StringBuilder(4096);
+			xmlWriter = new StringBuilderWriter(xml);
+		} else {
+			xml.setLength(0);
+		}
+		emitter.reset(xmlWriter, true);
+		if (chars.length > MAX_RETAINED_SCRATCH) {
+			chars = new char[64];
+		}
+		if (bytes.length > MAX_RETAINED_CHARS) {
+			bytes = new byte[8192];
+		}
+		busy = false;
+	}
+
+	/**
+	 * Marks the context as used by a conversion
+	 *
+	 * @throws IllegalStateException if a conversion is already running
+	 */
+	void begin() {
+		if (busy) {
+			throw new IllegalStateException("The context is used by another conversion");
+		}
+		busy = true;
+	}
+
+	/**
+	 * Lexes the JSON into the token buffer of the context
+	 *
+	 * @param json receive file
+	 * @return the tokens, valid until the context is reset
+	 * @throws JSONException
+	 */
+	TokenBuffer lex(String json) throws JSONException {
+		int length = json.length();
+		tokens.reset(json, MAX_RETAINED_TOKENS);
+		syntax.reset();
+		jObject.buildTokenBuffer(json, 0, length, tokens, syntax);
+		syntax.end(length);
+		tokens.setMaxDepth(syntax.maxDepth());
+		return tokens;
+	}
+
+	/**
+	 * Writes the lexed tokens as XML into the builder of the context
+	 *
+	 * @return xml string
+	 * @throws JSONException
+	 */
+	String emit() throws JSONException {
+		xml.setLength(0);
+		emitter.reset(xmlWriter, XMLEmitter.isRootWrapped(firstValue()));
+		return write();
+	}
+
+	private String write() throws JSONException {
+		try {
+			chars = jObject.parse(tokens, emitter, chars);
+		} catch (IOException e) {
+			throw new JSONException(e.toString());
+		}
+		return xml.toString();
+	}
+
+	private Type firstValue() {
+		return tokens.size() > 2 ? tokens.type(2) : null;
+	}
+
+	private String read(Path file) throws IOException {
+		long size = Files.size(file);
+		if (size >= Integer.MAX_VALUE) {
+			throw new IOException("File is too large: " + file);
+		} else if (size > bytes.length) {
+			bytes = new byte[(int) size];
+		}
+
+		int length = 0;
+		try (InputStream in = Files.newInputStream(file)) {
+			int read;
+			while ((read = in.read(bytes, length, bytes.length - length)) >= 0) {
+				length += read;
+				if (length == bytes.length) {
+					int next = in.read();
+					if (next < 0) {
+						break;
+					}
+					byte[] grown = new byte[length * 2];
+					System.arraycopy(bytes, 0, grown, 0, length);
+					grown[length++] = (byte) next;
+					bytes = grown;
+				}
+			}
+		}
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,83 @@
+/**
+ * @author DEVIAPHAN Measurements of one conversion. Durations of the phases
+ *         which did not run separately are -1: the single-pass conversion reads,
+ *         lexes and writes at once, so only its total is known
+ */
+public class ConversionEvent {
+	private final String path;
+	private final long inputBytes;
+	private final long readNanos;
+	private final long lexNanos;
+	private final long emitNanos;
+	private final long totalNanos;
+	private final int tokens;
+	private final int maxDepth;
+	private final long outputChars;
+
+	ConversionEvent(String path, long inputBytes, long readNanos, long lexNanos, long emitNanos, long totalNanos,
+			int tokens, int maxDepth, long outputChars) {
+		this.path = path;
+		this.inputBytes = inputBytes;
+		this.readNanos = readNanos;
+		this.lexNanos = lexNanos;
+		this.emitNanos = emitNanos;
+		this.totalNanos = totalNanos;
+		this.tokens = tokens;
+		this.maxDepth = maxDepth;
+		this.outputChars = outputChars;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public long getInputBytes() {
+		return inputBytes;
+	}
+
+	/**
+	 * @return time of reading and decoding the file
+	 */
+	public long getReadNanos() {
+		return readNanos;
+	}
+
+	/**
+	 * @return time of building the tokens
+	 */
+	public long getLexNanos() {
+		return lexNanos;
+	}
+
+	/**
+	 * @return time of writing the XML
+	 */
+	public long getEmitNanos() {
+		return emitNanos;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	/**
+	 * @return number of tokens or -1 if they were not counted
+	 */
+	public int getTokens() {
+		return tokens;
+	}
+
+	/**
+	 * @return largest number of objects and arrays open at once or -1
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @return length of the XML or -1 if it was written to a stream
+	 */
+	public long getOutputChars() {
+		return outputChars;
+	}
+}
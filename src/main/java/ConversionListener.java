@@ -0,0 +1,17 @@
+/**
+ * @author DEVIAPHAN Receives the measurements of every conversion of
+ *         {@link Parser}. It is called on the converting thread, so it should
+ *         return quickly
+ */
+public interface ConversionListener {
+	/**
+	 * @param event measurements of a finished conversion
+	 */
+	void converted(ConversionEvent event);
+
+	/**
+	 * @param path  path to the JSON file
+	 * @param error reason of the failure
+	 */
+	void failed(String path, Exception error);
+}
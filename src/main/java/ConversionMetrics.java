@@ -0,0 +1,163 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * @author DEVIAPHAN Listener which sums the conversions up: counters, rates
+ *         and a latency histogram for every phase. It can be published as
+ *         MBeans under {@link #DOMAIN}. Recording is lock-free and costs a few
+ *         atomic adds per conversion
+ */
+public class ConversionMetrics implements ConversionListener, ConversionMetricsMBean {
+	public static final String DOMAIN = "JSONToXML";
+
+	private final LatencyHistogram read = new LatencyHistogram();
+	private final LatencyHistogram lex = new LatencyHistogram();
+	private final LatencyHistogram emit = new LatencyHistogram();
+	private final LatencyHistogram total = new LatencyHistogram();
+	private final AtomicLong conversions = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong inputBytes = new AtomicLong();
+	private final AtomicLong tokens = new AtomicLong();
+	private final AtomicLong tokenNanos = new AtomicLong();
+	private final AtomicLong outputChars = new AtomicLong();
+	private final AtomicInteger maxDepth = new AtomicInteger();
+
+	@Override
+	public void converted(ConversionEvent event) {
+		conversions.incrementAndGet();
+		inputBytes.addAndGet(event.getInputBytes());
+		read.record(event.getReadNanos());
+		lex.record(event.getLexNanos());
+		emit.record(event.getEmitNanos());
+		total.record(event.getTotalNanos());
+		if (event.getTokens() >= 0) {
+			tokens.addAndGet(event.getTokens());
+			tokenNanos.addAndGet(event.getLexNanos() + event.getEmitNanos());
+		}
+		if (event.getOutputChars() >= 0) {
+			outputChars.addAndGet(event.getOutputChars());
+		}
+		int depth;
+		while (event.getMaxDepth() > (depth = maxDepth.get()) && !maxDepth.compareAndSet(depth, event.getMaxDepth())) {
+			// another thread recorded a deeper document, compare again
+		}
+	}
+
+	@Override
+	public void failed(String path, Exception error) {
+		failures.incrementAndGet();
+	}
+
+	/**
+	 * Registers this and the histograms of the phases in the platform MBean
+	 * server as DOMAIN:type=ConversionMetrics,name=... and
+	 * DOMAIN:type=ConversionPhase,name=...,phase=read|lex|emit|total
+	 *
+	 * @param name name which tells the registered metrics apart
+	 * @throws JMException
+	 */
+	public void register(String name) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		server.registerMBean(this, new ObjectName(DOMAIN + ":type=ConversionMetrics,name=" + name));
+		server.registerMBean(read, phase(name, "read"));
+		server.registerMBean(lex, phase(name, "lex"));
+		server.registerMBean(emit, phase(name, "emit"));
+		server.registerMBean(total, phase(name, "total"));
+	}
+
+	/**
+	 * Removes the MBeans registered by {@link #register(String)}
+	 *
+	 * @param name name the metrics were registered with
+	 * @throws JMException
+	 */
+	public void unregister(String name) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		server.unregisterMBean(new ObjectName(DOMAIN + ":type=ConversionMetrics,name=" + name));
+		for (String phase : new String[] { "read", "lex", "emit", "total" }) {
+			server.unregisterMBean(phase(name, phase));
+		}
+	}
+
+	public LatencyHistogram getRead() {
+		return read;
+	}
+
+	public LatencyHistogram getLex() {
+		return lex;
+	}
+
+	public LatencyHistogram getEmit() {
+		return emit;
+	}
+
+	public LatencyHistogram getTotal() {
+		return total;
+	}
+
+	@Override
+	public long getConversions() {
+		return conversions.get();
+	}
+
+	@Override
+	public long getFailures() {
+		return failures.get();
+	}
+
+	@Override
+	public long getInputBytes() {
+		return inputBytes.get();
+	}
+
+	@Override
+	public long getTokens() {
+		return tokens.get();
+	}
+
+	@Override
+	public long getOutputChars() {
+		return outputChars.get();
+	}
+
+	@Override
+	public int getMaxDepth() {
+		return maxDepth.get();
+	}
+
+	@Override
+	public double getInputBytesPerSecond() {
+		long nanos = total.getSumNanos();
+		return nanos == 0 ? 0 : inputBytes.get() * 1e9 / nanos;
+	}
+
+	@Override
+	public double getTokensPerSecond() {
+		long nanos = tokenNanos.get();
+		return nanos == 0 ? 0 : tokens.get() * 1e9 / nanos;
+	}
+
+	@Override
+	public void reset() {
+		read.reset();
+		lex.reset();
+		emit.reset();
+		total.reset();
+		conversions.set(0);
+		failures.set(0);
+		inputBytes.set(0);
+		tokens.set(0);
+		tokenNanos.set(0);
+		outputChars.set(0);
+		maxDepth.set(0);
+	}
+
+	private static ObjectName phase(String name, String phase) throws JMException {
+		return new ObjectName(DOMAIN + ":type=ConversionPhase,name=" + name + ",phase=" + phase);
+	}
+}
@@ -0,0 +1,29 @@
+/**
+ * @author DEVIAPHAN Totals of the conversions over JMX, the latency of every
+ *         phase is a separate {@link LatencyHistogramMBean}
+ */
+public interface ConversionMetricsMBean {
+	long getConversions();
+
+	long getFailures();
+
+	long getInputBytes();
+
+	long getTokens();
+
+	long getOutputChars();
+
+	int getMaxDepth();
+
+	/**
+	 * @return input bytes per second of conversion time
+	 */
+	double getInputBytesPerSecond();
+
+	/**
+	 * @return tokens per second of lexing and emitting time
+	 */
+	double getTokensPerSecond();
+
+	void reset();
+}
@@ -0,0 +1,183 @@
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * @author DEVIAPHAN The class serves the conversion over HTTP on the JDK
+ *         server. A POST to /convert with a JSON body is answered with the XML,
+ *         GET /health answers "ok". Every request runs on its own virtual
+ *         thread when the JDK has them (21+), otherwise on a cached pool.
+ *         Connections are kept alive between requests. The JDK server closes
+ *         idle connections above 200 by default; larger clients should launch
+ *         with -D{@value #MAX_IDLE_CONNECTIONS}=4096, which is read when the
+ *         first server is created
+ */
+public class ConversionServer {
+	public static final String CONVERT_PATH = "/convert";
+	public static final String HEALTH_PATH = "/health";
+	private static final int OUTPUT_BUFFER = 1 << 16;
+	private static final int READ_BUFFER = 1 << 13;
+	private static final int BACKLOG = 1 << 12;
+	public static final String MAX_IDLE_CONNECTIONS = "sun.net.httpserver.maxIdleConnections";
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final long maxRequestBytes;
+	private final JSONObject jObject = JSONObject.getInstance();
+
+	/**
+	 * @param port            port to listen on, 0 for any free port
+	 * @param maxRequestBytes maximal size of a request body, larger bodies are
+	 *                        answered with 413
+	 * @throws IOException
+	 */
+	public ConversionServer(int port, long maxRequestBytes) throws IOException {
+		if (maxRequestBytes < 1 || maxRequestBytes > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Request size limit must be from 1 to 2^31-9: " + maxRequestBytes);
+		}
+		this.maxRequestBytes = maxRequestBytes;
+		this.executor = newRequestExecutor();
+		this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+		server.setExecutor(executor);
+		server.createContext(CONVERT_PATH, this::convert);
+		server.createContext(HEALTH_PATH, exchange -> respond(exchange, 200, "ok"));
+	}
+
+	/**
+	 * Starts to accept connections
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops to accept connections and waits for the running requests
+	 *
+	 * @param delaySeconds maximal time to wait for the running requests
+	 */
+	public void stop(int delaySeconds) {
+		server.stop(delaySeconds);
+		executor.shutdown();
+		try {
+			executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return port the server listens on
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Creates a virtual thread per task executor when the JDK has it. It is
+	 * looked up by reflection so the class still runs on Java 8
+	 *
+	 * @return executor for the requests
+	 */
+	static ExecutorService newRequestExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	private void convert(HttpExchange exchange) throws IOException {
+		try {
+			if (!exchange.getRequestMethod().equals("POST")) {
+				exchange.getResponseHeaders().set("Allow", "POST");
+				respond(exchange, 405, "Only POST is allowed");
+				return;
+			}
+			String length = exchange.getRequestHeaders().getFirst("Content-Length");
+			if (length != null && parseLength(length) > maxRequestBytes) {
+				exchange.getResponseHeaders().set("Connection", "close");
+				respond(exchange, 413, "Request body is larger than " + maxRequestBytes + " bytes");
+				return;
+			}
+
+			byte[] body = readBody(exchange.getRequestBody());
+			if (body == null) {
+				exchange.getResponseHeaders().set("Connection", "close");
+				respond(exchange, 413, "Request body is larger than " + maxRequestBytes + " bytes");
+				return;
+			}
+			String json = new String(body, StandardCharsets.UTF_8);
+			if (json.isEmpty()) {
+				respond(exchange, 400, "JSON is empty");
+				return;
+			}
+
+			TokenBuffer tokens;
+			try {
+				tokens = jObject.buildTokenBuffer(json);
+			} catch (JSONException e) {
+				respond(exchange, 400, e.getMessage());
+				return;
+			}
+			exchange.getResponseHeaders().set("Content-Type", "application/xml; charset=UTF-8");
+			exchange.sendResponseHeaders(200, 0);
+			Type firstValue = tokens.size() > 2 ? tokens.type(2) : null;
+			try (BufferedWriter xml = new BufferedWriter(
+					new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), OUTPUT_BUFFER)) {
+				jObject.parse(tokens, new XMLEmitter(xml, XMLEmitter.isRootWrapped(firstValue)));
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Reads the body up to the size limit
+	 *
+	 * @param input body of the request
+	 * @return the bytes or null if the body is larger than the limit
+	 * @throws IOException
+	 */
+	private byte[] readBody(InputStream input) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[READ_BUFFER];
+		int read;
+		while ((read = input.read(buffer)) != -1) {
+			if (body.size() + read > maxRequestBytes) {
+				return null;
+			}
+			body.write(buffer, 0, read);
+		}
+		return body.toByteArray();
+	}
+
+	private static long parseLength(String length) {
+		try {
+			return Long.parseLong(length.trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+		byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+}
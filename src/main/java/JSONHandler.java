@@ -0,0 +1,37 @@
+import java.io.IOException;
+
+/**
+ * @author DEVIAPHAN Receives the structural events of a JSON document in the
+ *         order they are read. Chars of keys and values are only valid during
+ *         the call
+ */
+public interface JSONHandler {
+	void startObject() throws IOException;
+
+	void endObject() throws IOException;
+
+	void startArray() throws IOException;
+
+	void endArray() throws IOException;
+
+	void key(char[] chars, int offset, int length) throws IOException;
+
+	/**
+	 * @param type {@link Type#STR} or {@link Type#NUMB}
+	 */
+	void value(Type type, char[] chars, int offset, int length) throws IOException;
+
+	/**
+	 * Value whose escapes are not decoded yet, so a handler which writes it
+	 * can decode it in the same pass. By default the escapes are decoded in
+	 * place and {@link #value(Type, char[], int, int)} is called
+	 *
+	 * @param type    {@link Type#STR} or {@link Type#NUMB}
+	 * @param escaped true if the chars hold escapes checked by the lexer
+	 */
+	default void value(Type type, char[] chars, int offset, int length, boolean escaped) throws IOException {
+		value(type, chars, offset, escaped ? StringScanner.decode(chars, offset, length) : length);
+	}
+
+	void endDocument() throws IOException;
+}
@@ -0,0 +1,258 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author DEVIAPHAN The class converts JSON Lines, one JSON object per line, on
+ *         a pool of workers. Every record is written as an element named
+ *         {@link #RECORD} under one root tag, in the order of the input, as if
+ *         the records were the elements of the array "record" of one document.
+ *         The lines are read while at most a window of records is converted or
+ *         waits to be written, so the memory does not depend on the number of
+ *         records. Blank lines are ignored; a malformed line is reported with
+ *         its number and either skipped or ends the conversion
+ */
+public class JSONLinesConverter {
+	public static final String RECORD = "record";
+	private static final int BUFFER = 1 << 16;
+	private static final int MAX_REPORTED = 100;
+
+	private final int threads;
+	private final int window;
+	private final boolean skipMalformed;
+
+	/**
+	 * @param threads       number of workers
+	 * @param window        maximal number of records which are converted or
+	 *                      wait to be written
+	 * @param skipMalformed whether a malformed line is skipped instead of
+	 *                      ending the conversion
+	 */
+	public JSONLinesConverter(int threads, int window, boolean skipMalformed) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+		} else if (window < 1) {
+			throw new IllegalArgumentException("Window must be positive: " + window);
+		}
+		this.threads = threads;
+		this.window = window;
+		this.skipMalformed = skipMalformed;
+	}
+
+	/**
+	 * Converts a JSON Lines file, compressed files are recognized by their
+	 * extension, see {@link Codec#forPath(String)}. The XML file is deleted if
+	 * the conversion fails
+	 *
+	 * @param json path to the JSON Lines file
+	 * @param xml  path to the XML file, it is replaced
+	 * @return numbers of the records and the malformed lines
+	 * @throws IOException
+	 * @throws JSONException        if a line is malformed and is not skipped
+	 * @throws InterruptedException
+	 */
+	public Summary convert(Path json, Path xml) throws IOException, JSONException, InterruptedException {
+		Codec input = Codec.forPath(json.toString());
+		Codec output = Codec.forPath(xml.toString());
+		try (InputStream in = input.decompress(Files.newInputStream(json), BUFFER);
+				OutputStream out = Files.newOutputStream(xml)) {
+			OutputStream compressed = output.compress(out, BUFFER);
+			try {
+				Writer writer = new BufferedWriter(new OutputStreamWriter(compressed, StandardCharsets.UTF_8), BUFFER);
+				Summary summary = convert(new InputStreamReader(in, StandardCharsets.UTF_8), writer);
+				output.finish(compressed);
+				return summary;
+			} finally {
+				Codec.release(compressed);
+			}
+		} catch (IOException | JSONException | InterruptedException | RuntimeException e) {
+			try {
+				Files.deleteIfExists(xml);
+			} catch (IOException ignored) {
+				// the error of the conversion is reported
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Converts JSON Lines read from the reader. The writer is flushed but
+	 * neither is closed
+	 *
+	 * @param json source of the records
+	 * @param xml  destination of the XML, it should be buffered
+	 * @return numbers of the records and the malformed lines
+	 * @throws IOException
+	 * @throws JSONException        if a line is malformed and is not skipped
+	 * @throws InterruptedException
+	 */
+	public Summary convert(Reader json, Writer xml) throws IOException, JSONException, InterruptedException {
+		long start = System.nanoTime();
+		BufferedReader lines = json instanceof BufferedReader ? (BufferedReader) json : new BufferedReader(json, BUFFER);
+		ArrayDeque<Future<Record>> pending = new ArrayDeque<>(window);
+		Summary summary = new Summary();
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		try {
+			xml.write(XMLEmitter.HEADER);
+			xml.write("<" + XMLEmitter.ROOT + ">\n");
+			long number = 0;
+			String line;
+			while ((line = lines.readLine()) != null) {
+				number++;
+				if (isBlank(line)) {
+					continue;
+				}
+				if (pending.size() == window) {
+					write(pending.poll(), xml, summary);
+				}
+				String record = line;
+				long lineNumber = number;
+				pending.add(workers.submit(() -> convert(record, lineNumber)));
+			}
+			while (!pending.isEmpty()) {
+				write(pending.poll(), xml, summary);
+			}
+			xml.write("</" + XMLEmitter.ROOT + ">\n");
+			xml.flush();
+		} finally {
+			workers.shutdownNow();
+		}
+		summary.nanos = System.nanoTime() - start;
+		return summary;
+	}
+
+	private static Record convert(String line, long number) {
+		try {
+			return new Record(number, ConversionContext.forCurrentThread().convertElement(line, RECORD), null);
+		} catch (JSONException e) {
+			return new Record(number, null, e.getMessage());
+		}
+	}
+
+	private void write(Future<Record> next, Writer xml, Summary summary)
+			throws IOException, JSONException, InterruptedException {
+		Record record;
+		try {
+			record = next.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+		if (record.error == null) {
+			xml.write(record.xml);
+			summary.records++;
+		} else if (skipMalformed) {
+			summary.malformed(record.number, record.error);
+		} else {
+			throw new JSONException("Malformed record at line " + record.number + ": " + record.error);
+		}
+	}
+
+	private static boolean isBlank(String line) {
+		for (int i = 0; i < line.length(); i++) {
+			if (!CharClass.isSpace(line.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @author DEVIAPHAN XML of a converted line or the description of its error
+	 */
+	private static class Record {
+		private final long number;
+		private final String xml;
+		private final String error;
+
+		Record(long number, String xml, String error) {
+			this.number = number;
+			this.xml = xml;
+			this.error = error;
+		}
+	}
+
+	/**
+	 * @author DEVIAPHAN Results of a conversion. Only the first malformed
+	 *         lines are kept, the rest are counted
+	 */
+	public static class Summary {
+		private final List<String> errors = new ArrayList<>();
+		private long records;
+		private long skipped;
+		private long nanos;
+
+		/**
+		 * @return number of converted records
+		 */
+		public long getRecords() {
+			return records;
+		}
+
+		/**
+		 * @return number of skipped malformed lines
+		 */
+		public long getSkipped() {
+			return skipped;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return line numbers and errors of the first skipped lines
+		 */
+		public List<String> getErrors() {
+			return Collections.unmodifiableList(errors);
+		}
+
+		/**
+		 * Prints records/s and the skipped lines
+		 *
+		 * @param out destination of the report
+		 */
+		public void print(PrintStream out) {
+			double seconds = nanos / 1e9;
+			out.println(String.format(Locale.ROOT, "Converted %d records (%d skipped) in %.2f s: %.1f records/s",
+					records, skipped, seconds, records / seconds));
+			for (String error : errors) {
+				out.println("SKIPPED " + error);
+			}
+			if (skipped > errors.size()) {
+				out.println("... " + (skipped - errors.size()) + " more");
+			}
+		}
+
+		private void malformed(long number, String error) {
+			skipped++;
+			if (errors.size() < MAX_REPORTED) {
+				errors.add("line " + number + ": " + error);
+			}
+		}
+	}
+}
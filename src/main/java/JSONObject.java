@@ -1,39 +1,22 @@
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Predicate;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * @author DEVIAPHAN The Singleton class conducts lexical analysis and JSON
- *         parsing
+ *         parsing. It keeps no state between calls and may be shared by
+ *         threads
  */
 public class JSONObject {
 	private static final JSONObject INSTANCE = new JSONObject();
 
-	private final String numericChrRegex = "^\\d+$";
-	private final String numericStrRegex = "^(?:(?:\\-{1})?\\d+(?:\\.{1}\\d+)?)$";
-	private final String spaceRegex = "^\\s$";
-	private final char colon = ':';
-	private final Predicate<Character> numChrPredicate = (chr) -> Character.toString(chr).matches(numericChrRegex);
-	private final Predicate<String> numStrPredicate = (str) -> str.matches(numericStrRegex);
-	private final Predicate<Character> spacePredicate = (chr) -> Character.toString(chr).matches(spaceRegex);
-	private final Predicate<Character> minusPredicate = (chr) -> chr == '-';
-	private final Predicate<Character> dotPredicae = (chr) -> chr == '.';
-	private final Predicate<Character> delimeterPreciate = (chr) -> chr == ',';
-	private final Predicate<Character> quotePredicate = (chr) -> chr == '\"';
-	private final Predicate<Character> boolPredicate = (chr) -> {
-		Pattern p = Pattern.compile("[true|false]", Pattern.CASE_INSENSITIVE);
-		String str = Character.toString(chr);
-		Matcher m = p.matcher(str);
-		return m.matches();
-	};
-	private final Predicate<Character> openObjectPredicate = (chr) -> chr == '{';
-	private final Predicate<Character> closeObjectPredicate = (chr) -> chr == '}';
-	private final Predicate<Character> openArrayPredicate = (chr) -> chr == '[';
-	private final Predicate<Character> closeArrayPredicate = (chr) -> chr == ']';
-
 	private JSONObject() {
 	}
 
@@ -45,8 +28,7 @@ public class JSONObject {
 	}
 
 	/**
-	 * Lexical file analysis. The main loop in which we compare character by
-	 * character and pass in the desired method
+	 * Lexical file analysis
 	 *
 	 * @param json receive file
 	 * @return file-based token array
@@ -54,384 +36,531 @@ public class JSONObject {
 	 * @throws IOException
 	 */
 	public ArrayList<Token> buildTokens(String json) throws JSONException, IOException {
-		ArrayList<Token> tokens = new ArrayList<>();
-		ArrayList<Predicate<Character>> predicateList = new ArrayList<>();
-		AtomicInteger ci = new AtomicInteger();
-		char character;
-
-		while (ci.get() < json.length()) {
-			character = json.charAt(ci.get());
-
-			if (quotePredicate.test(character)) {
-				addString(json, ci, character, tokens, predicateList);
-			} else if (openObjectPredicate.test(character)) {
-				addOpenObject(character, ci, tokens);
-			} else if (closeObjectPredicate.test(character)) {
-				addCloseObject(json, ci, tokens);
-			} else if (openArrayPredicate.test(character)) {
-				addOpenArray(tokens, ci);
-			} else if (closeArrayPredicate.test(character)) {
-				addCloseArray(json, ci, character, tokens);
-			} else if (delimeterPreciate.test(character)) {
-				addDelimiter(json, ci, character, tokens);
-			} else if (numChrPredicate.test(character) || minusPredicate.test(character)) {
-				addNumeric(json, ci, character, tokens, predicateList);
-			} else if (boolPredicate.test(character)) {
-				addBool(json, ci, character, tokens, predicateList);
-			} else if (spacePredicate.test(character)) {
-				skipSpace(json, ci, character);
-			} else {
-				throw new JSONException("Wtf is this: " + character + " at " + ci.get());
-			}
-		}
-		anyUnclosedObj(tokens);
-		return tokens;
+		return buildTokenBuffer(json).toTokens();
 	}
 
-	private void skipSpace(String json, AtomicInteger ci, char character) throws JSONException {
-		int i = ci.get();
-		do {
-			i++;
-			if (i + 1 > json.length()) {
-				throw new JSONException("The object must not end with spaces at " + i);
-			}
-			character = json.charAt(i);
-		} while (spacePredicate.test(character));
-		ci.set(i);
+	/**
+	 * Lexical file analysis into the compact token array. The main loop in which
+	 * we look up the class of every character in {@link CharClass} and pass in
+	 * the desired method. Nothing is created per scanned character and tokens
+	 * only point into the JSON. Open objects and arrays are tracked by
+	 * {@link JSONSyntax}, so every check takes constant time
+	 *
+	 * @param json receive file
+	 * @return file-based compact token array
+	 * @throws JSONException
+	 */
+	public TokenBuffer buildTokenBuffer(String json) throws JSONException {
+		return buildTokenBuffer(json, null);
 	}
 
-	private void addOpenObject(char character, AtomicInteger ci, ArrayList<Token> tokens) throws JSONException {
-		if (ci.get() == 0 || tokens.get(tokens.size() - 1).getType().equals(Type.KEY)) {
-			addToken(Type.OpenObject, Type.OpenObject.getCode(), ci, true, tokens, true);
-		} else {
-			addOpenObjInArr(ci, tokens);
-		}
+	/**
+	 * Lexical file analysis which keeps only the tokens of the projection. The
+	 * value of a skipped key is scanned for its end by counting brackets
+	 * outside of strings; the order of the tokens around it is checked, its
+	 * inside is not
+	 *
+	 * @param json       receive file
+	 * @param projection paths to keep or null for the whole file
+	 * @return file-based compact token array
+	 * @throws JSONException
+	 */
+	public TokenBuffer buildTokenBuffer(String json, Projection projection) throws JSONException {
+		int length = json.length();
+		TokenBuffer tokens = projection == null ? new TokenBuffer(json, length / 6)
+				: new ProjectedTokenBuffer(json, 64, projection);
+		JSONSyntax syntax = new JSONSyntax();
+		buildTokenBuffer(json, 0, length, tokens, syntax);
+		syntax.end(length);
+		tokens.setMaxDepth(syntax.maxDepth());
+		return tokens;
 	}
 
-	private void addOpenObjInArr(AtomicInteger ci, ArrayList<Token> tokens) throws JSONException {
-		if (isInsideArr(Type.OpenObject, tokens, ci.get())) {
-			addToken(Type.OpenObject, Type.OpenObject.getCode(), ci, true, tokens, true);
-		} else {
-			throw new JSONException("Cannot add object to array with key at " + ci);
-		}
+	/**
+	 * Lexical file analysis on the threads of the pool, see
+	 * {@link ParallelLexer}. Tokens and errors are the same as of
+	 * {@link #buildTokenBuffer(String)}
+	 *
+	 * @param json receive file
+	 * @param pool pool which lexes the chunks of the file
+	 * @return file-based compact token array
+	 * @throws JSONException
+	 */
+	public TokenBuffer buildTokenBufferParallel(String json, ForkJoinPool pool) throws JSONException {
+		return new ParallelLexer(pool).buildTokenBuffer(json);
 	}
 
-	private void addCloseObject(String json, AtomicInteger ci, ArrayList<Token> tokens) throws JSONException {
-		int index = ci.get();
-		if (isInside(tokens, index, Type.OpenObject, Type.OpenArray, "object", true)) {
-			Type lastTokenType = tokens.get(tokens.size() - 1).getType();
-			int length = json.length() - 1;
-
-			if (lastTokenType.equals(Type.KEY)) {
-				throw new JSONException("it is impossible to add a close object before the key");
-			} else if (index == length) {
-				addToken(Type.CloseObject, Type.CloseObject.getCode(), ci, true, tokens, false);
-			} else if (index + 1 <= length) {
-				addTokenIfThereCloseElement(json.charAt(ci.get() + 1), ci, "close object", Type.CloseObject,
-						Type.CloseObject.getCode(), tokens, true, false);
+	/**
+	 * Two-stage lexical analysis of the UTF-8 bytes of a file. The first stage
+	 * builds the {@link StructuralIndex} eight bytes at a time, the second jumps
+	 * from one indexed position to the next: a string is the text between two
+	 * quotes and only the short gaps between the positions are scanned char by
+	 * char for numbers and booleans. Tokens and errors are the same as of
+	 * {@link #buildTokenBuffer(String)}: a document with an error or with an
+	 * unescaped control char in a string is lexed by it again to report the
+	 * error
+	 *
+	 * @param utf8 receive file
+	 * @return file-based compact token array
+	 * @throws JSONException
+	 */
+	public TokenBuffer buildTokenBuffer(byte[] utf8) throws JSONException {
+		StructuralIndex index = StructuralIndex.build(utf8);
+		String json;
+		if (index.isAscii()) {
+			json = new String(utf8, StandardCharsets.ISO_8859_1);
+		} else {
+			try {
+				json = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(utf8)).toString();
+			} catch (CharacterCodingException e) {
+				return buildTokenBuffer(new String(utf8, StandardCharsets.UTF_8));
 			}
 		}
-	}
-
-	private void addTokenIfThereCloseElement(char character, AtomicInteger ci, String element, Type type, String value,
-			ArrayList<Token> tokens, boolean inc, boolean opened) throws JSONException {
-		if (delimeterPreciate.test(character) || closeArrayPredicate.test(character)
-				|| closeObjectPredicate.test(character)) {
-			addToken(type, value, ci, inc, tokens, opened);
-		} else {
-			throw new JSONException(
-					"The " + element + " must be followed by a closing character \",]}\" at " + ci.get());
+		if (index.hasControlChars()) {
+			return buildTokenBuffer(json);
 		}
-	}
 
-	private void addOpenArray(ArrayList<Token> tokens, AtomicInteger ci) throws JSONException {
-		int index = ci.get();
-		if (tokens.get(tokens.size() - 1).getType().equals(Type.KEY)) {
-			if (isInside(tokens, index, Type.OpenObject, Type.OpenArray, "array", false)) {
-				addToken(Type.OpenArray, Type.OpenArray.getCode(), ci, true, tokens, true);
-			}
-		} else {
-			throw new JSONException("Missing key before array at " + index);
+		int length = json.length();
+		TokenBuffer tokens = new TokenBuffer(json, index.size());
+		JSONSyntax syntax = new JSONSyntax();
+		try {
+			buildTokenBuffer(json, index, tokens, syntax);
+			syntax.end(length);
+		} catch (JSONException e) {
+			return buildTokenBuffer(json);
 		}
+		tokens.setMaxDepth(syntax.maxDepth());
+		return tokens;
 	}
 
-	private void addCloseArray(String json, AtomicInteger ci, char character, ArrayList<Token> tokens)
+	/**
+	 * Lexical analysis of a part of the JSON. The syntax keeps the state of the
+	 * objects and arrays open before the part, the end of input is not checked
+	 *
+	 * @param json   receive file
+	 * @param from   index of the first char of the part
+	 * @param to     index after the last char of the part
+	 * @param tokens destination of the tokens
+	 * @param syntax state of the open objects and arrays
+	 * @throws JSONException
+	 */
+	void buildTokenBuffer(String json, int from, int to, TokenBuffer tokens, JSONSyntax syntax)
 			throws JSONException {
-		int index = ci.get();
-		if (isInside(tokens, index, Type.OpenArray, Type.OpenObject, "array", true)) {
-			if (index + 1 <= json.length() - 1) {
-				addTokenIfThereCloseElement(json.charAt(index + 1), ci, "close array", Type.CloseArray,
-						Type.CloseArray.getCode(), tokens, true, false);
-			} else {
-				throw new JSONException("Array cannot be the end of file");
+		buildTokenBuffer(json, from, to, tokens, syntax, new StringScanner(json));
+	}
+
+	/**
+	 * Lexical analysis of a part of the JSON with the scanner of its strings
+	 *
+	 * @param json    receive file
+	 * @param from    index of the first char of the part
+	 * @param to      index after the last char of the part
+	 * @param tokens  destination of the tokens
+	 * @param syntax  state of the open objects and arrays
+	 * @param strings scanner of the strings of the JSON
+	 * @throws JSONException
+	 */
+	void buildTokenBuffer(String json, int from, int to, TokenBuffer tokens, JSONSyntax syntax,
+			StringScanner strings) throws JSONException {
+		int ci = from;
+
+		while (ci < to) {
+			char character = json.charAt(ci);
+
+			switch (CharClass.of(character)) {
+			case CharClass.QUOTE:
+				ci = addString(json, ci, to, tokens, syntax, strings);
+				if (tokens.skipping()) {
+					ci = skipValue(json, ci, to, tokens, syntax, strings);
+				}
+				break;
+			case CharClass.OPEN_OBJECT:
+				ci = addToken(Type.OpenObject, ci, 1, tokens, syntax);
+				break;
+			case CharClass.CLOSE_OBJECT:
+				ci = addToken(Type.CloseObject, ci, 1, tokens, syntax);
+				break;
+			case CharClass.OPEN_ARRAY:
+				ci = addToken(Type.OpenArray, ci, 1, tokens, syntax);
+				break;
+			case CharClass.CLOSE_ARRAY:
+				ci = addToken(Type.CloseArray, ci, 1, tokens, syntax);
+				break;
+			case CharClass.COMMA:
+				ci = addToken(Type.Comma, ci, 1, tokens, syntax);
+				break;
+			case CharClass.DIGIT:
+			case CharClass.MINUS:
+				ci = addNumeric(json, ci, to, tokens, syntax);
+				break;
+			case CharClass.LETTER:
+				ci = addBool(json, ci, to, tokens, syntax);
+				break;
+			case CharClass.SPACE:
+				ci = skipSpace(json, ci, to);
+				break;
+			default:
+				throw new JSONException("Wtf is this: " + character + " at " + ci);
 			}
 		}
 	}
 
-	private void addDelimiter(String json, AtomicInteger ci, char character, ArrayList<Token> tokens)
+	private void buildTokenBuffer(String json, StructuralIndex index, TokenBuffer tokens, JSONSyntax syntax)
 			throws JSONException {
-		int index = ci.get();
-		if (index + 1 > json.length() - 1) {
-			throw new JSONException("Comma cannot be the end of file");
-		}
+		int length = json.length();
+		int count = index.size();
+		StringScanner strings = new StringScanner(json);
+		boolean escapes = index.hasEscapes();
+		int ci = 0;
+
+		for (int i = 0; i < count; i++) {
+			int position = index.get(i);
+			if (ci < position) {
+				addValues(json, ci, position, tokens, syntax);
+			}
 
-		Type lastTokenType = tokens.get(tokens.size() - 1).getType();
-		String nextChar = Character.toString(json.charAt(index + 1));
-		String exceptionBefore = "it is impossible to add a comma before the ";
-		String exceptionAfter = "it is impossible to add a comma if there is a/an ";
-
-		if (lastTokenType.equals(Type.KEY)) {
-			throw new JSONException(exceptionBefore + "key at " + index);
-		} else if (lastTokenType.equals(Type.Comma)) {
-			throw new JSONException(exceptionBefore + "comma at" + index);
-		} else if (nextChar.equals(Type.CloseArray.getCode()) || nextChar.equals(Type.CloseObject.getCode())) {
-			throw new JSONException(exceptionAfter + "close object/array" + index);
-		} else if (lastTokenType.equals(Type.OpenArray) || lastTokenType.equals(Type.OpenObject)) {
-			throw new JSONException(exceptionAfter + "open object/array" + index);
+			switch (CharClass.of(json.charAt(position))) {
+			case CharClass.QUOTE:
+				if (++i == count) {
+					throw new JSONException("The file must not end with \" at " + length);
+				}
+				int end = index.get(i);
+				if (end == position + 1) {
+					throw new JSONException("Empty a key or value at " + position);
+				}
+				boolean escaped = escapes && strings.check(position + 1, end);
+				int next = i + 1 < count ? index.get(i + 1) : length;
+				if (next < length && json.charAt(next) == ':' && skipSpace(json, end + 1, next) == next) {
+					syntax.accept(Type.KEY, position);
+					tokens.add(Type.KEY, position + 1, end - position - 1, escaped);
+					i++;
+					ci = next + 1;
+				} else {
+					syntax.accept(Type.STR, position);
+					tokens.add(Type.STR, position + 1, end - position - 1, escaped);
+					ci = end + 1;
+				}
+				break;
+			case CharClass.OPEN_OBJECT:
+				ci = addToken(Type.OpenObject, position, 1, tokens, syntax);
+				break;
+			case CharClass.CLOSE_OBJECT:
+				ci = addToken(Type.CloseObject, position, 1, tokens, syntax);
+				break;
+			case CharClass.OPEN_ARRAY:
+				ci = addToken(Type.OpenArray, position, 1, tokens, syntax);
+				break;
+			case CharClass.CLOSE_ARRAY:
+				ci = addToken(Type.CloseArray, position, 1, tokens, syntax);
+				break;
+			case CharClass.COMMA:
+				ci = addToken(Type.Comma, position, 1, tokens, syntax);
+				break;
+			default:
+				throw new JSONException("Wtf is this: " + json.charAt(position) + " at " + position);
+			}
+		}
+		if (ci < length) {
+			addValues(json, ci, length, tokens, syntax);
 		}
-		addToken(Type.Comma, Type.Comma.getCode(), ci, true, tokens, false);
 	}
 
-	private void addString(String json, AtomicInteger ci, char character, ArrayList<Token> tokens,
-			ArrayList<Predicate<Character>> predicateList) throws JSONException {
-		ci.set(ci.get() + 1);
-		character = json.charAt(ci.get());
-
-		predicateList.clear();
-		predicateList.add(quotePredicate);
-		String stringValue = composeStringValue(json, character, ci, predicateList, true);
-
-		if (stringValue.isEmpty()) {
-			throw new JSONException("Empty a key or value " + stringValue);
+	/**
+	 * Lexes the gap between two structural chars, which holds only spaces,
+	 * numbers and booleans
+	 */
+	private void addValues(String json, int ci, int to, TokenBuffer tokens, JSONSyntax syntax) throws JSONException {
+		while (ci < to) {
+			char character = json.charAt(ci);
+
+			switch (CharClass.of(character)) {
+			case CharClass.DIGIT:
+			case CharClass.MINUS:
+				ci = addNumeric(json, ci, to, tokens, syntax);
+				break;
+			case CharClass.LETTER:
+				ci = addBool(json, ci, to, tokens, syntax);
+				break;
+			case CharClass.SPACE:
+				ci = skipSpace(json, ci, to);
+				break;
+			default:
+				throw new JSONException("Wtf is this: " + character + " at " + ci);
+			}
 		}
+	}
 
-		Type lastTokenType = tokens.get(tokens.size() - 1).getType();
-		boolean equalKeyType = lastTokenType.equals(Type.KEY);
-		int index = ci.get() + 1;
-		character = json.charAt(index);
+	/**
+	 * Streaming lexical analysis. Tokens are read on demand through a fixed-size
+	 * buffer instead of building the whole token array
+	 *
+	 * @param reader JSON source
+	 * @return tokenizer positioned before the first token
+	 */
+	public JSONTokenizer tokens(Reader reader) {
+		return new JSONTokenizer(reader);
+	}
 
-		if (character == colon) {
-			addStrIfPreviouseValueKey(lastTokenType, ci, tokens, stringValue, equalKeyType);
-		} else if (equalKeyType) {
-			if (index <= json.length() - 1) {
-				addTokenIfThereCloseElement(character, ci, "string value", Type.STR, stringValue, tokens, true, false);
-			}
-		} else {
-			addValueIfInArr(tokens, ci, character, stringValue, Type.STR, true, "string value", Type.STR, json);
-		}
+	/**
+	 * Streaming lexical analysis of UTF-8 encoded JSON
+	 *
+	 * @param input JSON source
+	 * @return tokenizer positioned before the first token
+	 */
+	public JSONTokenizer tokens(InputStream input) {
+		return new JSONTokenizer(new InputStreamReader(input, StandardCharsets.UTF_8));
 	}
 
-	private void addStrIfPreviouseValueKey(Type lastTokenType, AtomicInteger ci, ArrayList<Token> tokens,
-			String stringValue, boolean equalKeyType) throws JSONException {
-		if (!equalKeyType) {
-			ci.set(ci.get() + 1);
-			if (isInside(tokens, ci.get(), Type.OpenObject, Type.OpenArray, "key", false)) {
-				addToken(Type.KEY, stringValue, ci, true, tokens, false);
-			}
-		} else {
-			throw new JSONException(
-					"Already have a key and can not add another one: " + stringValue + " at " + ci.get());
-		}
+	/**
+	 * Streaming lexical analysis of a UTF-8 encoded JSON file. The file is
+	 * mapped into memory and the bytes are lexed without decoding the whole
+	 * file
+	 *
+	 * @param path JSON file
+	 * @return tokenizer positioned before the first token
+	 * @throws IOException
+	 */
+	public TokenSource tokens(Path path) throws IOException {
+		return new MappedTokenizer(path);
 	}
 
-	private void addNumeric(String json, AtomicInteger ci, char character, ArrayList<Token> tokens,
-			ArrayList<Predicate<Character>> predicateList) throws JSONException {
-		predicateList.clear();
-		predicateList.add(numChrPredicate);
-		predicateList.add(dotPredicae);
-		predicateList.add(minusPredicate);
-		String stringValue = composeStringValue(json, character, ci, predicateList, false);
-
-		int index = ci.get();
-		Type lastTokenType = tokens.get(tokens.size() - 1).getType();
-		boolean equalKeyType = lastTokenType.equals(Type.KEY);
-		character = json.charAt(index);
-
-		if (numStrPredicate.test(stringValue)) {
-			if (equalKeyType) {
-				if (index + 1 <= json.length() - 1) {
-					addTokenIfThereCloseElement(character, ci, "numeric value", Type.NUMB, stringValue, tokens, false,
-							false);
-				}
-			} else if (!equalKeyType) {
-				addValueIfInArr(tokens, ci, character, stringValue, Type.NUMB, false, "numeric value", Type.NUMB, json);
-			}
-		} else {
-			throw new JSONException("This is not a number at " + index);
-		}
+	/**
+	 * Single-pass parsing. Every token is passed to the handler as soon as it is
+	 * read, no token array is built
+	 *
+	 * @param reader  JSON source
+	 * @param handler receiver of the events
+	 * @throws JSONException
+	 * @throws IOException
+	 */
+	public void parse(Reader reader, JSONHandler handler) throws JSONException, IOException {
+		parse(tokens(reader), handler);
 	}
 
-	private void addValueIfInArr(ArrayList<Token> tokens, AtomicInteger ci, char character, String stringValue,
-			Type type, boolean increment, String typeOfValue, Type innerType, String json) throws JSONException {
-		int index = ci.get();
-		if (isInside(tokens, index, Type.OpenArray, Type.OpenObject, "value", innerType)) {
-			if (index + 1 <= json.length() - 1) {
-				addTokenIfThereCloseElement(character, ci, "numeric value", Type.NUMB, stringValue, tokens, true,
-						false);
+	/**
+	 * Single-pass parsing of the rest of the tokenizer input
+	 *
+	 * @param tokenizer source of tokens
+	 * @param handler   receiver of the events
+	 * @throws JSONException
+	 * @throws IOException
+	 */
+	public void parse(TokenSource tokenizer, JSONHandler handler) throws JSONException, IOException {
+		Type type;
+		while ((type = tokenizer.next()) != null) {
+			switch (type) {
+			case OpenObject:
+				handler.startObject();
+				break;
+			case CloseObject:
+				handler.endObject();
+				break;
+			case OpenArray:
+				handler.startArray();
+				break;
+			case CloseArray:
+				handler.endArray();
+				break;
+			case KEY:
+				handler.key(tokenizer.textBuffer(), 0, tokenizer.textLength());
+				break;
+			case STR:
+			case NUMB:
+				handler.value(type, tokenizer.textBuffer(), 0, tokenizer.textLength());
+				break;
+			default:
+				break;
 			}
-		} else {
-			throw new JSONException(
-					"The value can not be without a key and outside the array: " + stringValue + " at " + index);
 		}
+		handler.endDocument();
 	}
 
-	private void addBool(String json, AtomicInteger ci, char character, ArrayList<Token> tokens,
-			ArrayList<Predicate<Character>> predicateList) throws JSONException {
-		predicateList.clear();
-		predicateList.add(boolPredicate);
-		String stringValue = composeStringValue(json, character, ci, predicateList, false);
-
-		int index = ci.get();
-		Type lastTokenType = tokens.get(tokens.size() - 1).getType();
-		boolean equalKeyType = lastTokenType.equals(Type.KEY);
-		character = json.charAt(index);
-
-		if ("true".equals(stringValue.toLowerCase()) || "false".equals(stringValue.toLowerCase())) {
-			if (equalKeyType) {
-				if (index + 1 <= json.length() - 1) {
-					addTokenIfThereCloseElement(character, ci, "boolean value", Type.STR, stringValue, tokens, false,
-							false);
-				}
-			} else if (!equalKeyType) {
-				addValueIfInArr(tokens, ci, character, stringValue, Type.STR, false, "bool value", Type.STR, json);
-			}
-		} else {
-			throw new JSONException("Value is not boolean: " + stringValue + " at " + index);
-		}
+	/**
+	 * Passes the tokens of the compact array to the handler. Chars of keys and
+	 * values are copied into one scratch array, no string is created here
+	 *
+	 * @param tokens  compact token array
+	 * @param handler receiver of the events
+	 * @throws IOException
+	 */
+	public void parse(TokenBuffer tokens, JSONHandler handler) throws IOException {
+		parse(tokens, handler, new char[64]);
 	}
 
-	private String composeStringValue(String json, char character, AtomicInteger ci,
-			ArrayList<Predicate<Character>> predicateList, boolean string) throws JSONException {
-		StringBuilder stringField = new StringBuilder();
-		int index = 0;
-		boolean infinity = true;
-		do {
-			stringField.append(character);
-			ci.set(ci.get() + 1);
-			index = ci.get();
-			if (index + 1 > json.length()) {
-				throw new JSONException("The file must not end with \" at " + index);
-			}
-			character = json.charAt(index);
-
-			int length = predicateList.size() - 1;
-			for (int i = 0; i <= length; i++) {
-				if (string) {
-					if (!predicateList.get(i).test(character)) {
-						break;
-					} else {
-						infinity = false;
-						break;
-					}
+	/**
+	 * Passes the tokens to the handler through the given scratch array
+	 *
+	 * @param tokens  file-based compact token array
+	 * @param handler receiver of the events
+	 * @param chars   scratch array for the text of the tokens
+	 * @return the scratch array, grown if a token did not fit
+	 * @throws IOException if the handler fails
+	 */
+	char[] parse(TokenBuffer tokens, JSONHandler handler, char[] chars) throws IOException {
+		int size = tokens.size();
+		for (int i = 0; i < size; i++) {
+			Type type = tokens.type(i);
+			switch (type) {
+			case OpenObject:
+				handler.startObject();
+				break;
+			case CloseObject:
+				handler.endObject();
+				break;
+			case OpenArray:
+				handler.startArray();
+				break;
+			case CloseArray:
+				handler.endArray();
+				break;
+			case KEY:
+			case STR:
+			case NUMB:
+				int length = tokens.length(i);
+				if (length > chars.length) {
+					chars = new char[Math.max(length, chars.length * 2)];
+				}
+				if (type == Type.KEY) {
+					handler.key(chars, 0, tokens.getChars(i, chars));
 				} else {
-					if (predicateList.get(i).test(character)) {
-						break;
-					}
-					if (i == length) {
-						infinity = false;
-					}
+					tokens.getSourceChars(i, chars);
+					handler.value(type, chars, 0, length, tokens.isEscaped(i));
 				}
+				break;
+			default:
+				break;
 			}
-
-		} while (infinity);
-
-		String stringValue = stringField.toString();
-		return stringValue;
+		}
+		handler.endDocument();
+		return chars;
 	}
 
-	private boolean isInsideArr(Type innerType, ArrayList<Token> tokens, int ci) throws JSONException {
-		int i = tokens.size() - 1;
-		while (i >= 0) {
-			Token token = tokens.get(i);
-			if (token.getType().equals(Type.OpenArray) && token.isOpen()) {
-				return setInnetType(innerType, ci, token);
-			}
-			i--;
+	private int skipSpace(String json, int ci, int to) {
+		while (ci < to && CharClass.isSpace(json.charAt(ci))) {
+			ci++;
 		}
-		throw new JSONException("Cannot add " + innerType.getCode() + " without key at " + ci);
+		return ci;
 	}
 
-	private boolean setInnetType(Type innerType, int ci, Token token) throws JSONException {
-		if (token.isInnerType(null)) {
-			token.setInnerType(innerType);
-			return true;
-		} else if (token.isInnerType(innerType)) {
-			return true;
-		} else {
-			throw new JSONException("Cannot add " + innerType.getCode() + " to array at " + ci);
+	private int addString(String json, int ci, int to, TokenBuffer tokens, JSONSyntax syntax,
+			StringScanner strings) throws JSONException {
+		int end = strings.end(ci + 1, to);
+		if (end < 0) {
+			throw new JSONException("The file must not end with \" at " + to);
+		} else if (end == ci + 1) {
+			throw new JSONException("Empty a key or value at " + ci);
+		}
+		int next = skipSpace(json, end + 1, to);
+
+		if (next < to && json.charAt(next) == ':') {
+			syntax.accept(Type.KEY, ci);
+			tokens.add(Type.KEY, ci + 1, end - ci - 1, strings.escaped());
+			return next + 1;
 		}
+		syntax.accept(Type.STR, ci);
+		tokens.add(Type.STR, ci + 1, end - ci - 1, strings.escaped());
+		return next;
 	}
 
-	private boolean isInside(ArrayList<Token> tokens, int ci, Type firstType, Type secondType, String element,
-			Type innerType) throws JSONException {
-		int i = tokens.size() - 1;
-		while (i >= 0) {
-			Token token = tokens.get(i);
-			Type tokenType = token.getType();
-			boolean isOpen = token.isOpen();
-			if (isOpen) {
-				if (setInnerType(firstType, secondType, tokenType, ci, element, token, innerType)) {
-					return true;
-				} else {
-					break;
-				}
+	private int skipValue(String json, int ci, int to, TokenBuffer tokens, JSONSyntax syntax,
+			StringScanner strings) throws JSONException {
+		ci = skipSpace(json, ci, to);
+		tokens.endSkip();
+		if (ci >= to) {
+			return ci;
+		}
+		char character = json.charAt(ci);
+		int end = ci + 1;
+
+		switch (CharClass.of(character)) {
+		case CharClass.QUOTE:
+			end = strings.end(ci + 1, to);
+			if (end < 0) {
+				throw new JSONException("The file must not end with \" at " + to);
+			} else if (end == ci + 1) {
+				throw new JSONException("Empty a key or value at " + ci);
+			}
+			syntax.accept(Type.STR, ci);
+			return end + 1;
+		case CharClass.OPEN_OBJECT:
+		case CharClass.OPEN_ARRAY:
+			return skipContainer(json, ci, to, syntax, strings);
+		case CharClass.DIGIT:
+		case CharClass.MINUS:
+			while (end < to && CharClass.isNumeric(json.charAt(end))) {
+				end++;
 			}
-			i--;
+			syntax.accept(Type.NUMB, ci);
+			return end;
+		case CharClass.LETTER:
+			while (end < to && CharClass.isLetter(json.charAt(end))) {
+				end++;
+			}
+			syntax.accept(Type.STR, ci);
+			return end;
+		default:
+			throw new JSONException("Wtf is this: " + character + " at " + ci);
 		}
-		return false;
 	}
 
-	private boolean isInside(ArrayList<Token> tokens, int ci, Type firstType, Type secondType, String element,
-			boolean close) throws JSONException {
-		int i = tokens.size() - 1;
-		while (i >= 0) {
-			Token token = tokens.get(i);
-			Type tokenType = token.getType();
-			if (token.isOpen()) {
-				if (tokenType.equals(firstType)) {
-					if (close) {
-						token.Close();
-					}
-					return true;
-				} else {
-					if (close) {
-						throw new JSONException("Missing start of " + element + " at " + ci);
-					}
-					throw new JSONException("The " + element + " cannot be inside another array at " + ci);
+	private int skipContainer(String json, int ci, int to, JSONSyntax syntax, StringScanner strings)
+			throws JSONException {
+		syntax.accept(json.charAt(ci) == '{' ? Type.OpenObject : Type.OpenArray, ci);
+		int depth = 0;
+		for (int i = ci; i < to; i++) {
+			switch (json.charAt(i)) {
+			case '"':
+				i = strings.end(i + 1, to);
+				if (i < 0) {
+					throw new JSONException("The file must not end with \" at " + to);
+				}
+				break;
+			case '{':
+			case '[':
+				depth++;
+				break;
+			case '}':
+			case ']':
+				if (--depth == 0) {
+					syntax.accept(json.charAt(i) == '}' ? Type.CloseObject : Type.CloseArray, i);
+					return i + 1;
 				}
+				break;
+			default:
+				break;
 			}
-			i--;
 		}
-		throw new JSONException("No open " + element + " at " + ci);
+		return to;
 	}
 
-	private boolean setInnerType(Type firstType, Type secondType, Type tokenType, int ci, String element, Token token,
-			Type innerType) throws JSONException {
-		if (tokenType.equals(firstType)) {
-			return setInnetType(innerType, ci, token);
-		} else {
-			return false;
+	private int addNumeric(String json, int ci, int to, TokenBuffer tokens, JSONSyntax syntax) throws JSONException {
+		int end = ci + 1;
+		while (end < to && CharClass.isNumeric(json.charAt(end))) {
+			end++;
 		}
-	}
 
-	private void anyUnclosedObj(ArrayList<Token> tokens) throws JSONException {
-		int i = tokens.size() - 1;
-		while (i >= 0) {
-			Token token = tokens.get(i);
-			if (token.getType().equals(Type.OpenObject) && token.isOpen()) {
-				throw new JSONException("Unclosed object at " + i);
-			} else if (token.getType().equals(Type.OpenArray) && token.isOpen()) {
-				throw new JSONException("Unclosed array at " + i);
-			}
-			i--;
+		if (!CharClass.isNumber(json, ci, end)) {
+			throw new JSONException("This is not a number at " + ci);
 		}
+		return addToken(Type.NUMB, ci, end - ci, tokens, syntax);
 	}
 
-	private void addToken(Type type, String str, AtomicInteger ci, boolean inc, ArrayList<Token> tokens,
-			boolean opened) {
-		tokens.add(new Token(type, str, opened));
-		if (inc != false) {
-			ci.set(ci.get() + 1);
+	private int addBool(String json, int ci, int to, TokenBuffer tokens, JSONSyntax syntax) throws JSONException {
+		int end = ci + 1;
+		while (end < to && CharClass.isLetter(json.charAt(end))) {
+			end++;
+		}
+
+		if (!CharClass.isBool(json, ci, end)) {
+			throw new JSONException("Value is not boolean: " + json.substring(ci, end) + " at " + ci);
 		}
+		return addToken(Type.STR, ci, end - ci, tokens, syntax);
+	}
+
+	private int addToken(Type type, int start, int length, TokenBuffer tokens, JSONSyntax syntax)
+			throws JSONException {
+		syntax.accept(type, start);
+		tokens.add(type, start, length);
+		return start + length;
 	}
 }
\ No newline at end of file
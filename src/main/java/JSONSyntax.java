@@ -0,0 +1,259 @@
+/**
+ * @author DEVIAPHAN The class checks the order of tokens. Open containers are
+ *         kept on an explicit stack, so every check costs the same regardless
+ *         of how many tokens were seen before
+ */
+final class JSONSyntax {
+	private Type[] containers = new Type[16];
+	private Type[] innerTypes = new Type[16];
+	private int depth;
+	private int maxDepth;
+	private Type last;
+	private boolean done;
+	private boolean unchecked;
+
+	/**
+	 * State inside the array which is the first value of the root object, used
+	 * to check a part of the array without the tokens before it
+	 *
+	 * @param innerType type of the elements seen before or null
+	 * @param last      type of the token before the part
+	 * @return syntax with the root object and the array open
+	 */
+	static JSONSyntax insideRootArray(Type innerType, Type last) {
+		JSONSyntax syntax = new JSONSyntax();
+		syntax.push(Type.OpenObject);
+		syntax.push(Type.OpenArray);
+		syntax.innerTypes[1] = innerType;
+		syntax.last = last;
+		return syntax;
+	}
+
+	/**
+	 * Syntax which accepts every token, for lexing a part of a document whose
+	 * tokens are checked later
+	 *
+	 * @return syntax without checks
+	 */
+	static JSONSyntax unchecked() {
+		JSONSyntax syntax = new JSONSyntax();
+		syntax.unchecked = true;
+		return syntax;
+	}
+
+	/**
+	 * Forgets all tokens, so the syntax can check another document
+	 */
+	void reset() {
+		depth = 0;
+		maxDepth = 0;
+		last = null;
+		done = false;
+	}
+
+	/**
+	 * Checks that a token of the type may follow the previous one and updates
+	 * the stack of open containers
+	 *
+	 * @param type     token type
+	 * @param position position of the token in the input
+	 * @throws JSONException
+	 */
+	void accept(Type type, long position) throws JSONException {
+		if (unchecked) {
+			return;
+		} else if (done) {
+			throw new JSONException("Cannot add " + type.getCode() + " after the end of the object at " + position);
+		} else if (last == null && type != Type.OpenObject) {
+			throw new JSONException("JSON must begin with an object, but found " + type.getCode() + " at " + position);
+		}
+		switch (type) {
+		case OpenObject:
+			acceptOpenObject(position);
+			break;
+		case CloseObject:
+			acceptClose(Type.OpenObject, "object", position);
+			break;
+		case OpenArray:
+			if (last != Type.KEY) {
+				throw new JSONException("Missing key before array at " + position);
+			}
+			push(Type.OpenArray);
+			break;
+		case CloseArray:
+			acceptClose(Type.OpenArray, "array", position);
+			break;
+		case Comma:
+			acceptComma(position);
+			break;
+		case KEY:
+			acceptKey(position);
+			break;
+		default:
+			acceptValue(type, position);
+			break;
+		}
+		last = type;
+	}
+
+	/**
+	 * Checks that the input does not end inside an object or array
+	 *
+	 * @param position position of the end of input
+	 * @throws JSONException
+	 */
+	void end(long position) throws JSONException {
+		if (last == null) {
+			throw new JSONException("JSON is empty");
+		} else if (depth > 0) {
+			String element = containers[depth - 1] == Type.OpenObject ? "object" : "array";
+			throw new JSONException("Unclosed " + element + " at " + position);
+		}
+	}
+
+	/**
+	 * @return number of objects and arrays that are open now
+	 */
+	int depth() {
+		return depth;
+	}
+
+	/**
+	 * @return largest number of objects and arrays that were open at once
+	 */
+	int maxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @return type of the last accepted token
+	 */
+	Type last() {
+		return last;
+	}
+
+	/**
+	 * @return type of the elements of the innermost open array or null
+	 */
+	Type innerType() {
+		return depth == 0 ? null : innerTypes[depth - 1];
+	}
+
+	/**
+	 * @return type of the innermost open container or null outside of the root
+	 */
+	Type container() {
+		return depth == 0 ? null : containers[depth - 1];
+	}
+
+	private void acceptOpenObject(long position) throws JSONException {
+		if (last == null || last == Type.KEY) {
+			push(Type.OpenObject);
+		} else if (container() == Type.OpenArray) {
+			afterSeparator("object", position);
+			setInnerType(Type.OpenObject, position);
+			push(Type.OpenObject);
+		} else {
+			afterSeparator("object", position);
+			throw new JSONException("Cannot add " + Type.OpenObject.getCode() + " without key at " + position);
+		}
+	}
+
+	private void acceptClose(Type openType, String element, long position) throws JSONException {
+		Type container = container();
+		if (container == null) {
+			throw new JSONException("No open " + element + " at " + position);
+		} else if (container != openType) {
+			throw new JSONException("Missing start of " + element + " at " + position);
+		} else if (last == Type.KEY) {
+			throw new JSONException("it is impossible to add a close " + element + " before the key at " + position);
+		} else if (last == Type.Comma) {
+			throw new JSONException("it is impossible to add a comma if there is a/an close object/array " + position);
+		}
+		depth--;
+		containers[depth] = null;
+		innerTypes[depth] = null;
+		done = depth == 0;
+	}
+
+	private void acceptComma(long position) throws JSONException {
+		String exceptionBefore = "it is impossible to add a comma before the ";
+		if (last == null) {
+			throw new JSONException("Comma cannot be the beginning of file");
+		} else if (last == Type.KEY) {
+			throw new JSONException(exceptionBefore + "key at " + position);
+		} else if (last == Type.Comma) {
+			throw new JSONException(exceptionBefore + "comma at " + position);
+		} else if (last == Type.OpenArray || last == Type.OpenObject) {
+			throw new JSONException("it is impossible to add a comma if there is a/an open object/array " + position);
+		}
+	}
+
+	private void acceptKey(long position) throws JSONException {
+		if (last == Type.KEY) {
+			throw new JSONException("Already have a key and can not add another one at " + position);
+		}
+		afterSeparator("key", position);
+		if (container() != Type.OpenObject) {
+			throw new JSONException("The key cannot be inside another array at " + position);
+		}
+	}
+
+	private void acceptValue(Type type, long position) throws JSONException {
+		if (last == Type.KEY) {
+			return;
+		}
+		String element = type == Type.NUMB ? "numeric value" : "string value";
+		afterSeparator(element, position);
+		if (container() != Type.OpenArray) {
+			throw new JSONException("The value can not be without a key and outside the array at " + position);
+		}
+		setInnerType(type, position);
+	}
+
+	private void afterSeparator(String element, long position) throws JSONException {
+		if (last != Type.Comma && last != Type.OpenObject && last != Type.OpenArray) {
+			throw new JSONException("The " + describe(last) + " must be followed by a closing character \",]}\" before "
+					+ element + " at " + position);
+		}
+	}
+
+	private void setInnerType(Type innerType, long position) throws JSONException {
+		Type current = innerTypes[depth - 1];
+		if (current == null) {
+			innerTypes[depth - 1] = innerType;
+		} else if (current != innerType) {
+			throw new JSONException("Cannot add " + innerType.getCode() + " to array at " + position);
+		}
+	}
+
+	private void push(Type type) {
+		if (depth == containers.length) {
+			Type[] grownContainers = new Type[depth * 2];
+			Type[] grownInnerTypes = new Type[depth * 2];
+			System.arraycopy(containers, 0, grownContainers, 0, depth);
+			System.arraycopy(innerTypes, 0, grownInnerTypes, 0, depth);
+			containers = grownContainers;
+			innerTypes = grownInnerTypes;
+		}
+		containers[depth] = type;
+		innerTypes[depth] = null;
+		depth++;
+		if (depth > maxDepth) {
+			maxDepth = depth;
+		}
+	}
+
+	private static String describe(Type type) {
+		switch (type) {
+		case CloseObject:
+			return "close object";
+		case CloseArray:
+			return "close array";
+		case NUMB:
+			return "numeric value";
+		default:
+			return "string value";
+		}
+	}
+}
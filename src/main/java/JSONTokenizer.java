@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * @author DEVIAPHAN The class reads JSON from a stream through a fixed-size
+ *         buffer and returns the tokens one by one. Only the open containers
+ *         and the current lexeme are kept in memory, so the heap depends on
+ *         the nesting depth and not on the size of the file
+ */
+public class JSONTokenizer implements TokenSource {
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Reader reader;
+	private final char[] buffer;
+	private final JSONSyntax syntax = new JSONSyntax();
+	private char[] text = new char[64];
+	private int textLength;
+	private int pos;
+	private int limit;
+	private long offset;
+	private long start;
+	private Type type;
+	private boolean finished;
+
+	/**
+	 * @param reader JSON source, it is read through the own buffer of the
+	 *               tokenizer and does not need to be buffered
+	 */
+	public JSONTokenizer(Reader reader) {
+		this(reader, BUFFER_SIZE);
+	}
+
+	/**
+	 * @param reader     JSON source
+	 * @param bufferSize size of the read buffer in chars
+	 */
+	public JSONTokenizer(Reader reader, int bufferSize) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+		}
+		this.reader = reader;
+		this.buffer = new char[bufferSize];
+	}
+
+	@Override
+	public Type next() throws IOException, JSONException {
+		if (finished) {
+			return null;
+		}
+		textLength = 0;
+		if (!skipSpace()) {
+			finished = true;
+			type = null;
+			syntax.end(offset + pos);
+			return null;
+		}
+		start = offset + pos;
+		char character = buffer[pos];
+
+		switch (character) {
+		case '{':
+			type = Type.OpenObject;
+			pos++;
+			break;
+		case '}':
+			type = Type.CloseObject;
+			pos++;
+			break;
+		case '[':
+			type = Type.OpenArray;
+			pos++;
+			break;
+		case ']':
+			type = Type.CloseArray;
+			pos++;
+			break;
+		case ',':
+			type = Type.Comma;
+			pos++;
+			break;
+		case '"':
+			type = readString();
+			break;
+		default:
+			if (CharClass.isDigit(character) || character == '-') {
+				type = readNumeric();
+			} else if (CharClass.isLetter(character)) {
+				type = readBool();
+			} else {
+				throw new JSONException("Wtf is this: " + character + " at " + start);
+			}
+		}
+		syntax.accept(type, start);
+		return type;
+	}
+
+	@Override
+	public Type type() {
+		return type;
+	}
+
+	@Override
+	public char[] textBuffer() {
+		return text;
+	}
+
+	@Override
+	public int textLength() {
+		return textLength;
+	}
+
+	@Override
+	public long position() {
+		return start;
+	}
+
+	@Override
+	public int depth() {
+		return syntax.depth();
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private Type readString() throws IOException, JSONException {
+		pos++;
+		boolean closed = false;
+		boolean escaped = false;
+		boolean skip = false;
+		while (!closed) {
+			if (!fill()) {
+				throw new JSONException("The file must not end with \" at " + (offset + pos));
+			}
+			int from = pos;
+			if (skip) {
+				pos++;
+				skip = false;
+			}
+			char character;
+			while (pos < limit && (character = buffer[pos]) != '"') {
+				if (character < ' ') {
+					throw StringScanner.controlChar(offset + pos);
+				}
+				pos++;
+				if (character == '\\') {
+					escaped = true;
+					if (pos < limit) {
+						pos++;
+					} else {
+						skip = true;
+					}
+				}
+			}
+			append(from, pos - from);
+			if (pos < limit) {
+				pos++;
+				closed = true;
+			}
+		}
+
+		if (textLength == 0) {
+			throw new JSONException("Empty a key or value at " + start);
+		}
+		if (escaped) {
+			textLength = StringScanner.decode(text, textLength, start + 1);
+		}
+		if (skipSpace() && buffer[pos] == ':') {
+			pos++;
+			return Type.KEY;
+		}
+		return Type.STR;
+	}
+
+	private Type readNumeric() throws IOException, JSONException {
+		boolean more = true;
+		while (more && fill()) {
+			int from = pos;
+			while (pos < limit && CharClass.isNumeric(buffer[pos])) {
+				pos++;
+			}
+			append(from, pos - from);
+			more = pos == limit;
+		}
+
+		if (!CharClass.isNumber(text, 0, textLength)) {
+			throw new JSONException("This is not a number at " + start);
+		}
+		return Type.NUMB;
+	}
+
+	private Type readBool() throws IOException, JSONException {
+		boolean more = true;
+		while (more && fill()) {
+			int from = pos;
+			while (pos < limit && CharClass.isLetter(buffer[pos])) {
+				pos++;
+			}
+			append(from, pos - from);
+			more = pos == limit;
+		}
+
+		if (!CharClass.isBool(text, 0, textLength)) {
+			throw new JSONException("Value is not boolean: " + new String(text, 0, textLength) + " at " + start);
+		}
+		return Type.STR;
+	}
+
+	private boolean skipSpace() throws IOException {
+		while (fill()) {
+			while (pos < limit) {
+				if (!CharClass.isSpace(buffer[pos])) {
+					return true;
+				}
+				pos++;
+			}
+		}
+		return false;
+	}
+
+	private boolean fill() throws IOException {
+		if (pos < limit) {
+			return true;
+		}
+		offset += limit;
+		pos = 0;
+		limit = 0;
+		int read;
+		do {
+			read = reader.read(buffer, 0, buffer.length);
+		} while (read == 0);
+		if (read < 0) {
+			return false;
+		}
+		limit = read;
+		return true;
+	}
+
+	private void append(int from, int length) {
+		if (textLength + length > text.length) {
+			char[] grown = new char[Math.max(text.length * 2, textLength + length)];
+			System.arraycopy(text, 0, grown, 0, textLength);
+			text = grown;
+		}
+		System.arraycopy(buffer, from, text, textLength, length);
+		textLength += length;
+	}
+}
@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * @author DEVIAPHAN The class writes compact JSON from JSON events, the
+ *         counterpart of {@link XMLEmitter}. Numbers and the words true and
+ *         false are written without quotes, keys and the other values are
+ *         quoted and escaped. Only a flag per open container is kept
+ */
+public class JSONWriter implements JSONHandler {
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final Writer out;
+	private boolean[] separated = new boolean[16];
+	private int depth;
+	private boolean afterKey;
+
+	/**
+	 * @param out destination of the JSON, it should be buffered
+	 */
+	public JSONWriter(Writer out) {
+		this.out = out;
+	}
+
+	@Override
+	public void startObject() throws IOException {
+		separate();
+		out.write('{');
+		push();
+	}
+
+	@Override
+	public void endObject() throws IOException {
+		depth--;
+		out.write('}');
+	}
+
+	@Override
+	public void startArray() throws IOException {
+		separate();
+		out.write('[');
+		push();
+	}
+
+	@Override
+	public void endArray() throws IOException {
+		depth--;
+		out.write(']');
+	}
+
+	@Override
+	public void key(char[] chars, int offset, int length) throws IOException {
+		separate();
+		writeString(chars, offset, length);
+		out.write(':');
+		afterKey = true;
+	}
+
+	@Override
+	public void value(Type type, char[] chars, int offset, int length) throws IOException {
+		separate();
+		if (type == Type.NUMB || isLiteral(chars, offset, length)) {
+			out.write(chars, offset, length);
+		} else {
+			writeString(chars, offset, length);
+		}
+	}
+
+	@Override
+	public void endDocument() throws IOException {
+		out.flush();
+	}
+
+	private void separate() throws IOException {
+		if (afterKey) {
+			afterKey = false;
+		} else if (depth > 0) {
+			if (separated[depth - 1]) {
+				out.write(',');
+			}
+			separated[depth - 1] = true;
+		}
+	}
+
+	private void push() {
+		if (depth == separated.length) {
+			boolean[] grown = new boolean[depth * 2];
+			System.arraycopy(separated, 0, grown, 0, depth);
+			separated = grown;
+		}
+		separated[depth++] = false;
+	}
+
+	/**
+	 * Writes a quoted string, runs of chars which need no escape are written
+	 * at once
+	 */
+	private void writeString(char[] chars, int offset, int length) throws IOException {
+		out.write('"');
+		int end = offset + length;
+		int from = offset;
+		for (int i = offset; i < end; i++) {
+			char c = chars[i];
+			if (c >= 0x20 && c != '"' && c != '\\') {
+				continue;
+			}
+			out.write(chars, from, i - from);
+			from = i + 1;
+			switch (c) {
+			case '"':
+				out.write("\\\"");
+				break;
+			case '\\':
+				out.write("\\\\");
+				break;
+			case '\n':
+				out.write("\\n");
+				break;
+			case '\r':
+				out.write("\\r");
+				break;
+			case '\t':
+				out.write("\\t");
+				break;
+			case '\b':
+				out.write("\\b");
+				break;
+			case '\f':
+				out.write("\\f");
+				break;
+			default:
+				out.write("\\u00");
+				out.write(HEX[c >> 4]);
+				out.write(HEX[c & 0xF]);
+				break;
+			}
+		}
+		out.write(chars, from, end - from);
+		out.write('"');
+	}
+
+	private static boolean isLiteral(char[] chars, int offset, int length) {
+		return equals(chars, offset, length, "true") || equals(chars, offset, length, "false");
+	}
+
+	private static boolean equals(char[] chars, int offset, int length, String word) {
+		if (length != word.length()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (chars[offset + i] != word.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
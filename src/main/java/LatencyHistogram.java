@@ -0,0 +1,122 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author DEVIAPHAN Lock-free histogram of durations. Every power of two of
+ *         nanoseconds is split into four buckets, so a percentile is off by at
+ *         most a quarter of its value, and recording is a few atomic adds
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+	private static final int SUB_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param nanos duration, negative durations are ignored
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			return;
+		}
+		buckets.incrementAndGet(bucket(nanos));
+		count.incrementAndGet();
+		sum.addAndGet(nanos);
+		long previous;
+		while (nanos > (previous = max.get()) && !max.compareAndSet(previous, nanos)) {
+			// another thread recorded a new maximum, compare again
+		}
+	}
+
+	/**
+	 * @param percent percentile from 0 to 100
+	 * @return upper bound of the bucket of the percentile in nanoseconds
+	 */
+	public long percentile(double percent) {
+		long total = count.get();
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(total * percent / 100));
+		long seen = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				return Math.min(upperBound(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * Removes all durations
+	 */
+	public void reset() {
+		for (int i = 0; i < buckets.length(); i++) {
+			buckets.set(i, 0);
+		}
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+
+	@Override
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return sum of the durations in nanoseconds
+	 */
+	public long getSumNanos() {
+		return sum.get();
+	}
+
+	@Override
+	public double getMeanMicros() {
+		long total = count.get();
+		return total == 0 ? 0 : sum.get() / 1e3 / total;
+	}
+
+	@Override
+	public double getP50Micros() {
+		return percentile(50) / 1e3;
+	}
+
+	@Override
+	public double getP90Micros() {
+		return percentile(90) / 1e3;
+	}
+
+	@Override
+	public double getP99Micros() {
+		return percentile(99) / 1e3;
+	}
+
+	@Override
+	public double getMaxMicros() {
+		return max.get() / 1e3;
+	}
+
+	private static int bucket(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	private static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		long lower = (1L << exponent) + (sub << (exponent - SUB_BITS));
+		return lower + (1L << (exponent - SUB_BITS)) - 1;
+	}
+}
@@ -0,0 +1,16 @@
+/**
+ * @author DEVIAPHAN Latency of one phase of the conversion over JMX
+ */
+public interface LatencyHistogramMBean {
+	long getCount();
+
+	double getMeanMicros();
+
+	double getP50Micros();
+
+	double getP90Micros();
+
+	double getP99Micros();
+
+	double getMaxMicros();
+}
@@ -1,36 +1,205 @@
-
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 
 /**
  * @author DEVIAPHAN
  */
 public class Main {
+    private static final String USAGE = "Usage: [--parallel] <json file>\n"
+            + "       <json file> <xml file>  (.gz and .deflate files are compressed)\n"
+            + "       --batch <input dir> [<output dir>] [--glob <pattern>] [--threads <n>]"
+            + " [--compress none|gzip|deflate]\n"
+            + "       --to-json <xml file>\n"
+            + "       --lines <json lines file> <xml file> [--threads <n>] [--window <n>] [--skip-malformed]\n"
+            + "       --serve [--port <n>] [--max-bytes <n>]";
+    private static final int DEFAULT_PORT = 8080;
+    private static final long DEFAULT_MAX_BYTES = 16 << 20;
+    private static final int DEFAULT_WINDOW = 4096;
+    private static final int MAX_IDLE_CONNECTIONS = 4096;
+    private static final int MAX_PORT = 65535;
+
     /**
-     * It takes the path to the JSON file
+     * It takes the path to the JSON file or the batch options
      *
      * @param args command line value
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            batch(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            serve(args);
+            return;
+        }
+        if (args.length == 2 && args[0].equals("--to-json")) {
+            try {
+                System.out.println(Parser.getInstance().xmlToJSON(args[1]));
+            } catch (IOException | JSONException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--lines")) {
+            lines(args);
+            return;
+        }
         Parser parser = Parser.getInstance();
-
-//		if (args.length != 0) {
-//			String xml = null;
-//			try {
-//				xml = parser.jsonToXML(args[0]);
-//			} catch (IOException | JSONException e) {
-//				e.printStackTrace();
-//			}
-//			System.out.println("Parsing completed");
-//		} else {
-//			System.out.println("args is Empty");
-//		}
+        boolean parallel = args.length > 0 && args[0].equals("--parallel");
+        int first = parallel ? 1 : 0;
+        String path = args.length > first ? args[first] : ".\\resourse\\JSONFile4";
+        if (!parallel && args.length == 2) {
+            try {
+                parser.jsonToXML(path, args[1]);
+            } catch (IOException | JSONException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
 
         String xml = null;
         try {
-            xml = parser.jsonToXML(".\\resourse\\JSONFile4");
+            xml = parallel ? parser.jsonToXMLParallel(path) : parser.jsonToXML(path);
         } catch (IOException | JSONException e) {
             e.printStackTrace();
         }
         System.out.println(xml);
     }
+
+    private static void batch(String[] args) {
+        Path input = null;
+        Path output = null;
+        String glob = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Codec codec = Codec.NONE;
+
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--glob") && i + 1 < args.length) {
+                glob = args[++i];
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = parseCount(args[++i]);
+            } else if (args[i].equals("--compress") && i + 1 < args.length) {
+                codec = parseCodec(args[++i]);
+            } else if (input == null) {
+                input = Paths.get(args[i]);
+            } else if (output == null) {
+                output = Paths.get(args[i]);
+            } else {
+                System.out.println(USAGE);
+                return;
+            }
+        }
+        if (input == null || threads < 1 || codec == null) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        try {
+            List<Path> files = BatchConverter.find(input, glob);
+            new BatchConverter(threads, codec).convert(files, input, output).print(System.out);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void lines(String[] args) {
+        Path input = null;
+        Path output = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int window = DEFAULT_WINDOW;
+        boolean skipMalformed = false;
+
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = parseCount(args[++i]);
+            } else if (args[i].equals("--window") && i + 1 < args.length) {
+                window = parseCount(args[++i]);
+            } else if (args[i].equals("--skip-malformed")) {
+                skipMalformed = true;
+            } else if (input == null) {
+                input = Paths.get(args[i]);
+            } else if (output == null) {
+                output = Paths.get(args[i]);
+            } else {
+                System.out.println(USAGE);
+                return;
+            }
+        }
+        if (output == null || threads < 1 || window < 1) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        try {
+            new JSONLinesConverter(threads, window, skipMalformed).convert(input, output).print(System.out);
+        } catch (IOException | JSONException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void serve(String[] args) {
+        int port = DEFAULT_PORT;
+        long maxBytes = DEFAULT_MAX_BYTES;
+
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--port") && i + 1 < args.length) {
+                port = parseCount(args[++i]);
+            } else if (args[i].equals("--max-bytes") && i + 1 < args.length) {
+                maxBytes = parseCount(args[++i]);
+            } else {
+                System.out.println(USAGE);
+                return;
+            }
+        }
+        if (port < 1 || port > MAX_PORT || maxBytes < 1 || maxBytes > Integer.MAX_VALUE - 8) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        // the JDK server reads the property when the first server is created
+        if (System.getProperty(ConversionServer.MAX_IDLE_CONNECTIONS) == null) {
+            System.setProperty(ConversionServer.MAX_IDLE_CONNECTIONS, String.valueOf(MAX_IDLE_CONNECTIONS));
+        }
+        try {
+            ConversionServer server = new ConversionServer(port, maxBytes);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(5)));
+            server.start();
+            System.out.println("Listening on port " + server.getPort() + ", POST JSON to "
+                    + ConversionServer.CONVERT_PATH);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @param value command line value
+     * @return the positive number or -1 if the value is not one
+     */
+    private static int parseCount(String value) {
+        try {
+            int count = Integer.parseInt(value);
+            return count > 0 ? count : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @param value command line value
+     * @return the codec or null if there is no codec of that name
+     */
+    private static Codec parseCodec(String value) {
+        for (Codec codec : Codec.values()) {
+            if (codec.name().equalsIgnoreCase(value)) {
+                return codec;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,301 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @author DEVIAPHAN The class maps a JSON file into memory window by window and
+ *         lexes the UTF-8 bytes directly. Whitespace is skipped by the lexer,
+ *         only the chars of the current key or value are decoded, so the heap
+ *         does not depend on the size of the file
+ */
+public class MappedTokenizer implements TokenSource {
+	private static final long WINDOW_SIZE = 1L << 28;
+
+	private final FileChannel channel;
+	private final long size;
+	private final long windowSize;
+	private final JSONSyntax syntax = new JSONSyntax();
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT);
+	private MappedByteBuffer window;
+	private byte[] raw = new byte[64];
+	private int rawLength;
+	private char[] text = new char[64];
+	private int textLength;
+	private int pos;
+	private int limit;
+	private long offset;
+	private long start;
+	private Type type;
+	private boolean finished;
+
+	/**
+	 * @param path JSON file, it is closed with the tokenizer
+	 * @throws IOException
+	 */
+	public MappedTokenizer(Path path) throws IOException {
+		this(FileChannel.open(path, StandardOpenOption.READ), WINDOW_SIZE);
+	}
+
+	/**
+	 * @param channel    JSON file, it is closed with the tokenizer
+	 * @param windowSize number of bytes mapped at once
+	 * @throws IOException
+	 */
+	public MappedTokenizer(FileChannel channel, long windowSize) throws IOException {
+		if (windowSize < 1 || windowSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Window size must be from 1 to 2^31-1: " + windowSize);
+		}
+		this.channel = channel;
+		this.size = channel.size();
+		this.windowSize = windowSize;
+	}
+
+	@Override
+	public Type next() throws IOException, JSONException {
+		if (finished) {
+			return null;
+		}
+		textLength = 0;
+		if (!skipSpace()) {
+			finished = true;
+			type = null;
+			syntax.end(offset + pos);
+			return null;
+		}
+		start = offset + pos;
+		char character = (char) (window.get(pos) & 0xFF);
+
+		switch (CharClass.of(character)) {
+		case CharClass.OPEN_OBJECT:
+			type = Type.OpenObject;
+			pos++;
+			break;
+		case CharClass.CLOSE_OBJECT:
+			type = Type.CloseObject;
+			pos++;
+			break;
+		case CharClass.OPEN_ARRAY:
+			type = Type.OpenArray;
+			pos++;
+			break;
+		case CharClass.CLOSE_ARRAY:
+			type = Type.CloseArray;
+			pos++;
+			break;
+		case CharClass.COMMA:
+			type = Type.Comma;
+			pos++;
+			break;
+		case CharClass.QUOTE:
+			type = readString();
+			break;
+		case CharClass.DIGIT:
+		case CharClass.MINUS:
+			type = readNumeric();
+			break;
+		case CharClass.LETTER:
+			type = readBool();
+			break;
+		default:
+			throw new JSONException("Wtf is this: " + character + " at " + start);
+		}
+		syntax.accept(type, start);
+		return type;
+	}
+
+	@Override
+	public Type type() {
+		return type;
+	}
+
+	@Override
+	public char[] textBuffer() {
+		return text;
+	}
+
+	@Override
+	public int textLength() {
+		return textLength;
+	}
+
+	@Override
+	public long position() {
+		return start;
+	}
+
+	@Override
+	public int depth() {
+		return syntax.depth();
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+
+	private Type readString() throws IOException, JSONException {
+		pos++;
+		rawLength = 0;
+		int bits = 0;
+		boolean closed = false;
+		boolean escaped = false;
+		boolean skip = false;
+		while (!closed) {
+			if (!fill()) {
+				throw new JSONException("The file must not end with \" at " + (offset + pos));
+			}
+			int from = pos;
+			if (skip) {
+				bits |= window.get(pos);
+				pos++;
+				skip = false;
+			}
+			byte b;
+			while (pos < limit && (b = window.get(pos)) != '"') {
+				if (b >= 0 && b < ' ') {
+					throw StringScanner.controlChar(offset + pos);
+				}
+				bits |= b;
+				pos++;
+				if (b == '\\') {
+					escaped = true;
+					if (pos < limit) {
+						bits |= window.get(pos);
+						pos++;
+					} else {
+						skip = true;
+					}
+				}
+			}
+			appendRaw(from, pos - from);
+			if (pos < limit) {
+				pos++;
+				closed = true;
+			}
+		}
+
+		if (rawLength == 0) {
+			throw new JSONException("Empty a key or value at " + start);
+		}
+		decode(bits < 0);
+		if (escaped) {
+			textLength = StringScanner.decode(text, textLength, start + 1);
+		}
+		if (skipSpace() && window.get(pos) == ':') {
+			pos++;
+			return Type.KEY;
+		}
+		return Type.STR;
+	}
+
+	private Type readNumeric() throws IOException, JSONException {
+		rawLength = 0;
+		boolean more = true;
+		while (more && fill()) {
+			int from = pos;
+			while (pos < limit && CharClass.isNumeric((char) window.get(pos))) {
+				pos++;
+			}
+			appendRaw(from, pos - from);
+			more = pos == limit;
+		}
+
+		decode(false);
+		if (!CharClass.isNumber(text, 0, textLength)) {
+			throw new JSONException("This is not a number at " + start);
+		}
+		return Type.NUMB;
+	}
+
+	private Type readBool() throws IOException, JSONException {
+		rawLength = 0;
+		boolean more = true;
+		while (more && fill()) {
+			int from = pos;
+			while (pos < limit && CharClass.isLetter((char) window.get(pos))) {
+				pos++;
+			}
+			appendRaw(from, pos - from);
+			more = pos == limit;
+		}
+
+		decode(false);
+		if (!CharClass.isBool(text, 0, textLength)) {
+			throw new JSONException("Value is not boolean: " + new String(text, 0, textLength) + " at " + start);
+		}
+		return Type.STR;
+	}
+
+	private boolean skipSpace() throws IOException {
+		while (fill()) {
+			while (pos < limit) {
+				if (!CharClass.isSpace((char) window.get(pos))) {
+					return true;
+				}
+				pos++;
+			}
+		}
+		return false;
+	}
+
+	private boolean fill() throws IOException {
+		if (pos < limit) {
+			return true;
+		}
+		offset += limit;
+		pos = 0;
+		limit = 0;
+		if (offset >= size) {
+			window = null;
+			return false;
+		}
+		limit = (int) Math.min(windowSize, size - offset);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, offset, limit);
+		return true;
+	}
+
+	private void appendRaw(int from, int length) {
+		if (rawLength + length > raw.length) {
+			byte[] grown = new byte[Math.max(raw.length * 2, rawLength + length)];
+			System.arraycopy(raw, 0, grown, 0, rawLength);
+			raw = grown;
+		}
+		window.position(from);
+		window.get(raw, rawLength, length);
+		rawLength += length;
+	}
+
+	private void decode(boolean multiByte) throws JSONException {
+		if (text.length < rawLength) {
+			text = new char[Math.max(text.length * 2, rawLength)];
+		}
+		if (!multiByte) {
+			for (int i = 0; i < rawLength; i++) {
+				text[i] = (char) raw[i];
+			}
+			textLength = rawLength;
+			return;
+		}
+
+		CharBuffer chars = CharBuffer.wrap(text);
+		decoder.reset();
+		CoderResult result = decoder.decode(ByteBuffer.wrap(raw, 0, rawLength), chars, true);
+		if (!result.isError()) {
+			result = decoder.flush(chars);
+		}
+		if (result.isError()) {
+			throw new JSONException("Malformed UTF-8 in string at " + start);
+		}
+		textLength = chars.position();
+	}
+}
@@ -0,0 +1,273 @@
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * @author DEVIAPHAN The class converts a document whose root object starts with
+ *         a large array on several threads. Element boundaries of the array
+ *         are found by a bracket and quote scan, ranges of elements are
+ *         converted on a fork-join pool and the XML fragments are joined in
+ *         their order. Any other document is lexed by {@link ParallelLexer}.
+ *         The result is the same as of the sequential conversion; if anything
+ *         is wrong with the document, it is converted sequentially to report
+ *         the same error
+ */
+public class ParallelConverter {
+	private static final int MIN_CHUNK = 1 << 16;
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private final JSONObject jObject = JSONObject.getInstance();
+	private final ForkJoinPool pool;
+
+	/**
+	 * @param pool pool which converts the ranges of elements
+	 */
+	public ParallelConverter(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Converts JSON to XML
+	 *
+	 * @param json receive file
+	 * @return xml string
+	 * @throws JSONException
+	 */
+	public String convert(String json) throws JSONException {
+		int chunk = Math.max(MIN_CHUNK, json.length() / (pool.getParallelism() * CHUNKS_PER_THREAD));
+		RootArray array = RootArray.find(json, chunk);
+		if (array == null || array.bounds.length < 3) {
+			return sequential(json);
+		}
+
+		try {
+			return parallel(json, array);
+		} catch (JSONException e) {
+			return sequential(json);
+		}
+	}
+
+	private String sequential(String json) throws JSONException {
+		return XMLObject.getInstance().parseTokens(jObject.buildTokenBufferParallel(json, pool));
+	}
+
+	private String parallel(String json, RootArray array) throws JSONException {
+		int chunks = array.bounds.length - 1;
+		StringBuilder[] fragments = new StringBuilder[chunks];
+		Type[] innerTypes = new Type[chunks];
+		pool.invoke(new ChunkTask(json, array, 0, chunks, fragments, innerTypes));
+
+		int length = XMLEmitter.HEADER.length() + XMLEmitter.ROOT.length() + 3;
+		Type innerType = null;
+		for (int i = 0; i < chunks; i++) {
+			if (fragments[i] == null || (innerType != null && innerTypes[i] != innerType)) {
+				throw new JSONException("Cannot convert the elements of the root array in parallel");
+			}
+			innerType = innerTypes[i];
+			length += fragments[i].length();
+		}
+
+		StringBuilder suffix = suffix(json, array, innerType);
+		StringBuilder xml = new StringBuilder(length + suffix.length());
+		xml.append(XMLEmitter.HEADER).append('<').append(XMLEmitter.ROOT).append(">\n");
+		for (int i = 0; i < chunks; i++) {
+			xml.append(fragments[i]);
+			fragments[i] = null;
+		}
+		return xml.append(suffix).toString();
+	}
+
+	private StringBuilder convertChunk(String json, RootArray array, int index, Type[] innerTypes) {
+		int from = array.bounds[index] + 1;
+		int to = array.bounds[index + 1];
+		TokenBuffer tokens = new TokenBuffer(json, (to - from) / 6);
+		JSONSyntax syntax = JSONSyntax.insideRootArray(null, index == 0 ? Type.OpenArray : Type.Comma);
+		try {
+			jObject.buildTokenBuffer(json, from, to, tokens, syntax);
+		} catch (JSONException e) {
+			return null;
+		}
+		if (tokens.size() == 0 || syntax.depth() != 2 || syntax.last() == Type.Comma) {
+			return null;
+		}
+
+		StringBuilder xml = new StringBuilder((to - from) + ((to - from) >> 1));
+		try {
+			jObject.parse(tokens, XMLEmitter.insideRootArray(new StringBuilderWriter(xml), array.key));
+		} catch (IOException e) {
+			return null;
+		}
+		innerTypes[index] = syntax.innerType();
+		return xml;
+	}
+
+	private StringBuilder suffix(String json, RootArray array, Type innerType) throws JSONException {
+		int from = array.bounds[array.bounds.length - 1];
+		TokenBuffer tokens = new TokenBuffer(json, (json.length() - from) / 6);
+		Type last = innerType == Type.OpenObject ? Type.CloseObject : innerType;
+		JSONSyntax syntax = JSONSyntax.insideRootArray(innerType, last);
+		jObject.buildTokenBuffer(json, from, json.length(), tokens, syntax);
+		syntax.end(json.length());
+
+		StringBuilder xml = new StringBuilder(json.length() - from + 64);
+		try {
+			jObject.parse(tokens, XMLEmitter.insideRootArray(new StringBuilderWriter(xml), array.key));
+		} catch (IOException e) {
+			throw new JSONException(e.toString());
+		}
+		return xml;
+	}
+
+	/**
+	 * @author DEVIAPHAN Converts the chunks from lo to hi, splitting the range in
+	 *         halves
+	 */
+	private class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final String json;
+		private final RootArray array;
+		private final int lo;
+		private final int hi;
+		private final StringBuilder[] fragments;
+		private final Type[] innerTypes;
+
+		ChunkTask(String json, RootArray array, int lo, int hi, StringBuilder[] fragments, Type[] innerTypes) {
+			this.json = json;
+			this.array = array;
+			this.lo = lo;
+			this.hi = hi;
+			this.fragments = fragments;
+			this.innerTypes = innerTypes;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo == 1) {
+				fragments[lo] = convertChunk(json, array, lo, innerTypes);
+				return;
+			}
+			int mid = (lo + hi) >>> 1;
+			invokeAll(new ChunkTask(json, array, lo, mid, fragments, innerTypes),
+					new ChunkTask(json, array, mid, hi, fragments, innerTypes));
+		}
+	}
+
+	/**
+	 * @author DEVIAPHAN The array which is the first value of the root object
+	 *         and the boundaries of its chunks
+	 */
+	static class RootArray {
+		private final String key;
+		private final int[] bounds;
+
+		private RootArray(String key, int[] bounds) {
+			this.key = key;
+			this.bounds = bounds;
+		}
+
+		/**
+		 * Finds the array and splits it at top-level commas into chunks of at
+		 * least the given size. Strings are scanned as in the lexer
+		 *
+		 * @param json  receive file
+		 * @param chunk minimal size of a chunk in chars
+		 * @return the array with the index of the open bracket, the commas which
+		 *         separate the chunks and the index of the close bracket, or null
+		 *         if the document does not start with an array
+		 */
+		static RootArray find(String json, int chunk) {
+			int ci = skipSpace(json, 0);
+			if (ci >= json.length() || json.charAt(ci) != '{') {
+				return null;
+			}
+			ci = skipSpace(json, ci + 1);
+			if (ci >= json.length() || json.charAt(ci) != '"') {
+				return null;
+			}
+			StringScanner strings = new StringScanner(json);
+			int end;
+			try {
+				end = strings.end(ci + 1, json.length());
+			} catch (JSONException e) {
+				return null;
+			}
+			if (end <= ci + 1) {
+				return null;
+			}
+			String key = strings.escaped() ? StringScanner.decode(json, ci + 1, end) : json.substring(ci + 1, end);
+			ci = skipSpace(json, end + 1);
+			if (ci >= json.length() || json.charAt(ci) != ':') {
+				return null;
+			}
+			ci = skipSpace(json, ci + 1);
+			if (ci >= json.length() || json.charAt(ci) != '[') {
+				return null;
+			}
+
+			int[] bounds = new int[16];
+			int count = 0;
+			bounds[count++] = ci;
+			int depth = 0;
+			int last = ci;
+			for (ci = ci + 1; ci < json.length(); ci++) {
+				switch (json.charAt(ci)) {
+				case '"':
+					try {
+						ci = strings.end(ci + 1, json.length());
+					} catch (JSONException e) {
+						return null;
+					}
+					if (ci < 0) {
+						return null;
+					}
+					break;
+				case '{':
+				case '[':
+					depth++;
+					break;
+				case '}':
+					if (--depth < 0) {
+						return null;
+					}
+					break;
+				case ']':
+					if (depth == 0) {
+						bounds = add(bounds, count++, ci);
+						int[] result = new int[count];
+						System.arraycopy(bounds, 0, result, 0, count);
+						return new RootArray(key, result);
+					}
+					depth--;
+					break;
+				case ',':
+					if (depth == 0 && ci - last >= chunk) {
+						bounds = add(bounds, count++, ci);
+						last = ci;
+					}
+					break;
+				default:
+					break;
+				}
+			}
+			return null;
+		}
+
+		private static int[] add(int[] bounds, int count, int value) {
+			if (count == bounds.length) {
+				int[] grown = new int[count * 2];
+				System.arraycopy(bounds, 0, grown, 0, count);
+				bounds = grown;
+			}
+			bounds[count] = value;
+			return bounds;
+		}
+
+		private static int skipSpace(String json, int ci) {
+			while (ci < json.length() && CharClass.isSpace(json.charAt(ci))) {
+				ci++;
+			}
+			return ci;
+		}
+	}
+}
@@ -0,0 +1,282 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * @author DEVIAPHAN Lexes one document on several threads. The document is cut
+ *         into chunks at arbitrary chars and every chunk is scanned at once
+ *         for both guesses of its start, outside or inside of a string: the
+ *         parity of its quotes, its net bracket depth and its first bracket or
+ *         comma outside of a string. A prefix merge over the chunks picks the
+ *         right guess from the parities, moves every cut to that bracket or
+ *         comma and checks the depths. A char after a backslash is skipped by
+ *         the scan, a backslash can only be inside of a string of a valid
+ *         document. The cut ranges are lexed in parallel and their tokens are
+ *         joined and checked by one pass of {@link JSONSyntax} over the token
+ *         types. The tokens are the same as of
+ *         {@link JSONObject#buildTokenBuffer(String)}; if the document has any
+ *         error it is lexed sequentially, so the error and its offset are the
+ *         same too
+ */
+final class ParallelLexer {
+	private static final int MIN_CHUNK = 1 << 16;
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private final JSONObject jObject = JSONObject.getInstance();
+	private final ForkJoinPool pool;
+
+	/**
+	 * @param pool pool which scans and lexes the chunks
+	 */
+	ParallelLexer(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Lexical file analysis into the compact token array
+	 *
+	 * @param json receive file
+	 * @return file-based compact token array
+	 * @throws JSONException
+	 */
+	TokenBuffer buildTokenBuffer(String json) throws JSONException {
+		int length = json.length();
+		int chunks = Math.min(pool.getParallelism() * CHUNKS_PER_THREAD, length / MIN_CHUNK);
+		if (pool.getParallelism() < 2 || chunks < 2) {
+			return jObject.buildTokenBuffer(json);
+		}
+
+		Chunk[] scans = new Chunk[chunks];
+		for (int i = 0; i < chunks; i++) {
+			scans[i] = new Chunk((int) ((long) length * i / chunks), (int) ((long) length * (i + 1) / chunks));
+		}
+		pool.invoke(new ScanTask(json, scans, 0, chunks));
+
+		int[] bounds = merge(scans, length);
+		if (bounds == null) {
+			return jObject.buildTokenBuffer(json);
+		}
+
+		int ranges = bounds.length - 1;
+		TokenBuffer[] parts = new TokenBuffer[ranges];
+		pool.invoke(new LexTask(json, bounds, parts, 0, ranges));
+		TokenBuffer tokens = join(json, parts);
+		if (tokens == null || !check(tokens, length)) {
+			return jObject.buildTokenBuffer(json);
+		}
+		return tokens;
+	}
+
+	/**
+	 * Prefix merge of the scanned chunks
+	 *
+	 * @return bounds of the ranges to lex, every bound but the first and the
+	 *         last is a bracket or comma outside of a string, or null if the
+	 *         brackets do not balance
+	 */
+	private static int[] merge(Chunk[] scans, int length) {
+		int[] bounds = new int[scans.length + 1];
+		int count = 0;
+		bounds[count++] = 0;
+		int quoted = 0;
+		int depth = 0;
+
+		for (Chunk chunk : scans) {
+			if (depth + chunk.minDepth[quoted] < 0) {
+				return null;
+			}
+			depth += chunk.depth[quoted];
+			int cut = chunk.firstCut[quoted];
+			if (cut > bounds[count - 1]) {
+				bounds[count++] = cut;
+			}
+			quoted ^= chunk.quoteParity;
+		}
+		if (depth != 0 || quoted != 0) {
+			return null;
+		}
+
+		if (bounds[count - 1] < length) {
+			bounds[count++] = length;
+		}
+		int[] result = new int[count];
+		System.arraycopy(bounds, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * @return tokens of all parts in their order or null if a part has failed
+	 */
+	private static TokenBuffer join(String json, TokenBuffer[] parts) {
+		int size = 0;
+		for (TokenBuffer part : parts) {
+			if (part == null) {
+				return null;
+			}
+			size += part.size();
+		}
+		TokenBuffer tokens = new TokenBuffer(json, size);
+		for (int i = 0; i < parts.length; i++) {
+			tokens.append(parts[i]);
+			parts[i] = null;
+		}
+		return tokens;
+	}
+
+	/**
+	 * Checks the order of the joined tokens. Offsets are not needed, a
+	 * document with an error is lexed again
+	 *
+	 * @return true if the tokens form a document
+	 */
+	private static boolean check(TokenBuffer tokens, int length) {
+		JSONSyntax syntax = new JSONSyntax();
+		try {
+			for (int i = 0; i < tokens.size(); i++) {
+				syntax.accept(tokens.type(i), tokens.start(i));
+			}
+			syntax.end(length);
+		} catch (JSONException e) {
+			return false;
+		}
+		tokens.setMaxDepth(syntax.maxDepth());
+		return true;
+	}
+
+	private TokenBuffer lex(String json, int from, int to) {
+		TokenBuffer tokens = new TokenBuffer(json, (to - from) / 6);
+		try {
+			jObject.buildTokenBuffer(json, from, to, tokens, JSONSyntax.unchecked());
+		} catch (JSONException e) {
+			return null;
+		}
+		return tokens;
+	}
+
+	/**
+	 * @author DEVIAPHAN Result of the scan of one chunk. Arrays are indexed by
+	 *         the guess of the start: 0 outside of a string, 1 inside
+	 */
+	private static final class Chunk {
+		private final int from;
+		private final int to;
+		private final int[] depth = new int[2];
+		private final int[] minDepth = new int[2];
+		private final int[] firstCut = { -1, -1 };
+		private int quoteParity;
+
+		Chunk(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Scans the chunk once for both guesses; a char is outside of a string
+		 * for the guess equal to the quote parity before it. The first char is
+		 * skipped if it is escaped by the backslashes at the end of the previous
+		 * chunk
+		 */
+		void scan(String json) {
+			int parity = 0;
+			int backslashes = 0;
+			while (from - backslashes > 0 && json.charAt(from - backslashes - 1) == '\\') {
+				backslashes++;
+			}
+			for (int ci = from + (backslashes & 1); ci < to; ci++) {
+				char character = json.charAt(ci);
+				switch (character) {
+				case '"':
+					parity ^= 1;
+					break;
+				case '\\':
+					ci++;
+					break;
+				case '{':
+				case '[':
+					depth[parity]++;
+					cut(parity, ci);
+					break;
+				case '}':
+				case ']':
+					if (--depth[parity] < minDepth[parity]) {
+						minDepth[parity] = depth[parity];
+					}
+					cut(parity, ci);
+					break;
+				case ',':
+					cut(parity, ci);
+					break;
+				default:
+					break;
+				}
+			}
+			quoteParity = parity;
+		}
+
+		private void cut(int guess, int ci) {
+			if (firstCut[guess] < 0) {
+				firstCut[guess] = ci;
+			}
+		}
+	}
+
+	/**
+	 * @author DEVIAPHAN Scans the chunks from lo to hi, splitting the range in
+	 *         halves
+	 */
+	private static final class ScanTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final String json;
+		private final Chunk[] chunks;
+		private final int lo;
+		private final int hi;
+
+		ScanTask(String json, Chunk[] chunks, int lo, int hi) {
+			this.json = json;
+			this.chunks = chunks;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo == 1) {
+				chunks[lo].scan(json);
+				return;
+			}
+			int mid = (lo + hi) >>> 1;
+			invokeAll(new ScanTask(json, chunks, lo, mid), new ScanTask(json, chunks, mid, hi));
+		}
+	}
+
+	/**
+	 * @author DEVIAPHAN Lexes the ranges from lo to hi, splitting them in halves
+	 */
+	private final class LexTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final String json;
+		private final int[] bounds;
+		private final TokenBuffer[] parts;
+		private final int lo;
+		private final int hi;
+
+		LexTask(String json, int[] bounds, TokenBuffer[] parts, int lo, int hi) {
+			this.json = json;
+			this.bounds = bounds;
+			this.parts = parts;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo == 1) {
+				parts[lo] = lex(json, bounds[lo], bounds[lo + 1]);
+				return;
+			}
+			int mid = (lo + hi) >>> 1;
+			invokeAll(new LexTask(json, bounds, parts, lo, mid), new LexTask(json, bounds, parts, mid, hi));
+		}
+	}
+}
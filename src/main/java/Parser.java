@@ -1,17 +1,35 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * @author DEVIAPHAN Singleton class which works with JSON/XML parsing
+ * @author DEVIAPHAN Singleton class which works with JSON/XML parsing. It
+ *         may be shared by threads: the scratch buffers of a conversion belong
+ *         to the {@link ConversionContext} of the calling thread
  */
 public class Parser {
 	private static final Parser INSTANCE = new Parser();
+	private static final long MAPPED_MIN_SIZE = 1 << 20;
+	private static final int STREAM_BUFFER = 1 << 16;
 	private JSONObject jObject;
 	private XMLObject xmlObject;
+	private volatile ResultCache resultCache;
+	private final CopyOnWriteArrayList<ConversionListener> listeners = new CopyOnWriteArrayList<>();
 
 	private Parser() {
 		jObject = JSONObject.getInstance();
@@ -34,23 +52,493 @@ public class Parser {
 	 * @throws IOException
 	 */
 	public String jsonToXML(String path) throws IOException, JSONException {
+		try {
+			checkFile(path);
+			ResultCache cache = resultCache;
+			if (cache != null) {
+				return cache.get(Paths.get(path), content -> convert(path, content, 0));
+			}
+			long start = System.nanoTime();
+			byte[] content = Files.readAllBytes(Paths.get(path));
+			return convert(path, content, System.nanoTime() - start);
+		} catch (IOException | JSONException e) {
+			failed(path, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Parsing the selected parts of JSON to XML. Skipped subtrees are not
+	 * tokenized and cost only a scan for their end
+	 *
+	 * @param path       path to the JSON file
+	 * @param projection paths to include or exclude
+	 * @return xml formed file
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public String jsonToXML(String path, Projection projection) throws IOException, JSONException {
+		String json = fileToString(path);
+		if (json.isEmpty()) {
+			throw new JSONException("JSON is empty");
+		}
+		return xmlObject.parseTokens(jObject.buildTokenBuffer(json, projection));
+	}
+
+	/**
+	 * Lexes and checks a JSON file once and saves its tokens, see
+	 * {@link TokenFile}. Later conversions by {@link #tokenFileToXML(String)}
+	 * skip the lexing
+	 *
+	 * @param path      path to the JSON file
+	 * @param tokenPath path to the token file, it is replaced
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public void jsonToTokenFile(String path, String tokenPath) throws IOException, JSONException {
+		String json = fileToString(path);
+		if (json.isEmpty()) {
+			throw new JSONException("JSON is empty");
+		}
+		TokenFile.write(jObject.buildTokenBuffer(json), Paths.get(tokenPath));
+	}
+
+	/**
+	 * Parsing a saved token file to XML. The file is mapped into memory and the
+	 * tokens are emitted without lexing or checking them again
+	 *
+	 * @param tokenPath path to the token file
+	 * @return xml formed file
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public String tokenFileToXML(String tokenPath) throws IOException, JSONException {
+		try (TokenFile tokens = TokenFile.open(Paths.get(tokenPath))) {
+			return xmlObject.parseTokens(tokens);
+		}
+	}
+
+	/**
+	 * Parsing a saved token file to XML written to the writer
+	 *
+	 * @param tokenPath path to the token file
+	 * @param xml       destination of the XML, it should be buffered
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public void tokenFileToXML(String tokenPath, Writer xml) throws IOException, JSONException {
+		try (TokenFile tokens = TokenFile.open(Paths.get(tokenPath))) {
+			xmlObject.parseTokens(tokens, xml);
+		}
+	}
+
+	/**
+	 * Adds a listener which receives the measurements of every conversion by
+	 * {@link #jsonToXML(String)} and {@link #jsonToXML(String, Writer)}. Without
+	 * listeners nothing is measured
+	 *
+	 * @param listener receiver of the measurements, for example
+	 *                 {@link ConversionMetrics}
+	 */
+	public void addListener(ConversionListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * @param listener listener to remove
+	 */
+	public void removeListener(ConversionListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Sets the cache of {@link #jsonToXML(String)}, by default there is no cache
+	 *
+	 * @param cache cache of the converted files or null to convert every time
+	 */
+	public void setResultCache(ResultCache cache) {
+		this.resultCache = cache;
+	}
+
+	/**
+	 * @return cache of the converted files or null
+	 */
+	public ResultCache getResultCache() {
+		return resultCache;
+	}
+
+	/**
+	 * Parsing JSON to XML on the common fork-join pool. When the root object
+	 * starts with an array, ranges of its elements are converted in parallel,
+	 * any other file is lexed in parallel; the result is the same as of
+	 * {@link #jsonToXML(String)}
+	 *
+	 * @param path path to the JSON file
+	 * @return xml formed file
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public String jsonToXMLParallel(String path) throws IOException, JSONException {
+		return jsonToXMLParallel(path, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Parsing JSON to XML on the fork-join pool
+	 *
+	 * @param path path to the JSON file
+	 * @param pool pool which converts the elements of the root array
+	 * @return xml formed file
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public String jsonToXMLParallel(String path, ForkJoinPool pool) throws IOException, JSONException {
 		String json = fileToString(path);
 		if (json.isEmpty()) {
 			throw new JSONException("JSON is empty");
 		}
-		ArrayList<Token> tokens = jObject.buildTokens(json);
-		String xml = xmlObject.parseTokens(tokens);
-		return xml;
+		return new ParallelConverter(pool).convert(json);
+	}
+
+	/**
+	 * Single-pass parsing JSON to XML. Files from 1 MB are mapped into memory
+	 * and their UTF-8 bytes are lexed directly, smaller files are read through
+	 * the buffer of the tokenizer because mapping costs more than reading them.
+	 * The XML is written while the file is read. Neither the JSON, the tokens
+	 * nor the XML are kept on the heap
+	 *
+	 * @param path path to the JSON file
+	 * @param xml  destination of the XML
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public void jsonToXML(String path, Writer xml) throws IOException, JSONException {
+		long start = System.nanoTime();
+		long size;
+		try {
+			checkFile(path);
+			Path file = Paths.get(path);
+			size = Files.size(file);
+			try (TokenSource tokens = size < MAPPED_MIN_SIZE ? jObject.tokens(Files.newInputStream(file))
+					: jObject.tokens(file)) {
+				jObject.parse(tokens, new XMLEmitter(xml));
+			}
+		} catch (IOException | JSONException e) {
+			failed(path, e);
+			throw e;
+		}
+		if (!listeners.isEmpty()) {
+			converted(new ConversionEvent(path, size, -1, -1, -1, System.nanoTime() - start, -1, -1, -1));
+		}
+	}
+
+	/**
+	 * Single-pass parsing JSON to UTF-8 encoded XML
+	 *
+	 * @param path path to the JSON file
+	 * @param xml  destination of the XML
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public void jsonToXML(String path, OutputStream xml) throws IOException, JSONException {
+		jsonToXML(path, new BufferedWriter(new OutputStreamWriter(xml, StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Single-pass parsing JSON to XML
+	 *
+	 * @param json source of the JSON
+	 * @param xml  destination of the XML
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public void jsonToXML(Reader json, Writer xml) throws IOException, JSONException {
+		jObject.parse(json, new XMLEmitter(xml));
+	}
+
+	/**
+	 * Single-pass parsing of a JSON file to an XML file. Each file is
+	 * compressed if its extension names a codec, see
+	 * {@link Codec#forPath(String)}, for example "data.json.gz" to
+	 * "data.xml.gz"
+	 *
+	 * @param path    path to the JSON file
+	 * @param xmlPath path to the XML file, it is replaced
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public void jsonToXML(String path, String xmlPath) throws IOException, JSONException {
+		jsonToXML(path, Codec.forPath(path), xmlPath, Codec.forPath(xmlPath), STREAM_BUFFER);
+	}
+
+	/**
+	 * Single-pass parsing of a JSON file to an XML file with the given codecs.
+	 * The XML file is deleted if the conversion fails
+	 *
+	 * @param path       path to the JSON file
+	 * @param input      codec of the JSON file
+	 * @param xmlPath    path to the XML file, it is replaced
+	 * @param output     codec of the XML file
+	 * @param bufferSize size of the compressed and the char buffers
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public void jsonToXML(String path, Codec input, String xmlPath, Codec output, int bufferSize)
+			throws IOException, JSONException {
+		long start = System.nanoTime();
+		Path xmlFile = Paths.get(xmlPath);
+		long size;
+		try {
+			checkFile(path);
+			Path file = Paths.get(path);
+			size = Files.size(file);
+			try (InputStream json = Files.newInputStream(file); OutputStream xml = Files.newOutputStream(xmlFile)) {
+				jsonToXML(json, input, xml, output, bufferSize);
+			}
+		} catch (IOException | JSONException e) {
+			try {
+				Files.deleteIfExists(xmlFile);
+			} catch (IOException ignored) {
+				// the error of the conversion is reported
+			}
+			failed(path, e);
+			throw e;
+		}
+		if (!listeners.isEmpty()) {
+			converted(new ConversionEvent(path, size, -1, -1, -1, System.nanoTime() - start, -1, -1, -1));
+		}
+	}
+
+	/**
+	 * Single-pass parsing of a compressed JSON stream to a compressed XML
+	 * stream. The JSON is decompressed, lexed, written as XML and compressed
+	 * chunk by chunk. The streams are not closed, the compressed XML is
+	 * complete when the method returns; the native (de)compressors are ended
+	 * even if it fails
+	 *
+	 * @param json       source of the JSON
+	 * @param input      codec of the JSON
+	 * @param xml        destination of the XML
+	 * @param output     codec of the XML
+	 * @param bufferSize size of the compressed and the char buffers
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public void jsonToXML(InputStream json, Codec input, OutputStream xml, Codec output, int bufferSize)
+			throws IOException, JSONException {
+		InputStream decompressed = input.decompress(json, bufferSize);
+		try {
+			OutputStream compressed = output.compress(xml, bufferSize);
+			try {
+				Writer out = new BufferedWriter(new OutputStreamWriter(compressed, StandardCharsets.UTF_8),
+						bufferSize);
+				JSONTokenizer tokens = new JSONTokenizer(
+						new InputStreamReader(decompressed, StandardCharsets.UTF_8), bufferSize);
+				jObject.parse(tokens, new XMLEmitter(out));
+				output.finish(compressed);
+			} finally {
+				Codec.release(compressed);
+			}
+		} finally {
+			Codec.release(decompressed);
+		}
+	}
+
+	/**
+	 * Streaming parsing of an XML file back to JSON, see {@link XMLTokenizer}
+	 *
+	 * @param path path to the XML file
+	 * @return json string
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public String xmlToJSON(String path) throws IOException, JSONException {
+		StringBuilder json = new StringBuilder();
+		xmlToJSON(path, new StringBuilderWriter(json));
+		return json.toString();
+	}
+
+	/**
+	 * Streaming parsing of an XML file back to JSON. Only the open elements and
+	 * the events read ahead are kept in memory
+	 *
+	 * @param path path to the XML file
+	 * @param json destination of the JSON, it should be buffered
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public void xmlToJSON(String path, Writer json) throws IOException, JSONException {
+		if (!Files.isRegularFile(Paths.get(path))) {
+			throw new JSONException("Path to XML file not exists");
+		}
+		try (InputStream xml = new BufferedInputStream(Files.newInputStream(Paths.get(path)), STREAM_BUFFER)) {
+			xmlToJSON(xml, json);
+		}
+	}
+
+	/**
+	 * Streaming parsing XML back to JSON. The stream is not closed
+	 *
+	 * @param xml  source of the XML, the encoding is taken from the declaration
+	 * @param json destination of the JSON, it should be buffered
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public void xmlToJSON(InputStream xml, Writer json) throws IOException, JSONException {
+		jObject.parse(new XMLTokenizer(xml), new JSONWriter(json));
+	}
+
+	/**
+	 * Incremental parsing JSON to XML. The bytes of the document are given to
+	 * the parser in chunks and the XML of every token is written as soon as the
+	 * token is complete
+	 *
+	 * @param xml destination of the XML, it should be buffered
+	 * @return parser which is fed with the UTF-8 bytes of the JSON
+	 */
+	public PushParser pushParser(Writer xml) {
+		return new PushParser(new XMLEmitter(xml));
+	}
+
+	/**
+	 * Parsing JSON to XML on the common fork-join pool without blocking the
+	 * caller
+	 *
+	 * @param path path to the JSON file
+	 * @return future of the xml, completed exceptionally with
+	 *         {@link IOException} or {@link JSONException}
+	 */
+	public CompletableFuture<String> jsonToXMLAsync(String path) {
+		return jsonToXMLAsync(path, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Parsing JSON to XML on the executor without blocking the caller
+	 *
+	 * @param path     path to the JSON file
+	 * @param executor executor which runs the conversion
+	 * @return future of the xml, completed exceptionally with
+	 *         {@link IOException} or {@link JSONException}
+	 */
+	public CompletableFuture<String> jsonToXMLAsync(String path, Executor executor) {
+		CompletableFuture<String> future = new CompletableFuture<>();
+		execute(future, executor, () -> future.complete(jsonToXML(path)));
+		return future;
+	}
+
+	/**
+	 * Single-pass parsing JSON to XML on the executor without blocking the
+	 * caller. The writer is not closed
+	 *
+	 * @param path     path to the JSON file
+	 * @param xml      destination of the XML
+	 * @param executor executor which runs the conversion
+	 * @return future completed when the XML is written, or exceptionally with
+	 *         {@link IOException} or {@link JSONException}
+	 */
+	public CompletableFuture<Void> jsonToXMLAsync(String path, Writer xml, Executor executor) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		execute(future, executor, () -> {
+			jsonToXML(path, xml);
+			future.complete(null);
+		});
+		return future;
+	}
+
+	/**
+	 * Publisher of the XML as UTF-8 chunks. The conversion starts when it is
+	 * subscribed and runs only as fast as the subscriber requests chunks
+	 *
+	 * @param path     path to the JSON file
+	 * @param executor executor which runs the conversion
+	 * @return publisher of the chunks of {@link XMLPublisher#DEFAULT_CHUNK_SIZE}
+	 */
+	public XMLPublisher jsonToXMLPublisher(String path, Executor executor) {
+		return new XMLPublisher(path, executor, XMLPublisher.DEFAULT_CHUNK_SIZE);
+	}
+
+	private void execute(CompletableFuture<?> future, Executor executor, Conversion conversion) {
+		try {
+			executor.execute(() -> {
+				try {
+					conversion.run();
+				} catch (IOException | JSONException | RuntimeException e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Converts the content of a file in the context of the thread, measuring
+	 * the phases when there are listeners
+	 *
+	 * @param path      path to the JSON file
+	 * @param content   bytes of the file
+	 * @param readNanos time of reading the bytes
+	 * @return xml string
+	 * @throws JSONException
+	 */
+	private String convert(String path, byte[] content, long readNanos) throws JSONException {
+		ConversionContext context = ConversionContext.forCurrentThread();
+		if (listeners.isEmpty()) {
+			String json = new String(content, StandardCharsets.UTF_8);
+			if (json.isEmpty()) {
+				throw new JSONException("JSON is empty");
+			}
+			return context.convert(json);
+		}
+
+		long start = System.nanoTime();
+		String json = new String(content, StandardCharsets.UTF_8);
+		if (json.isEmpty()) {
+			throw new JSONException("JSON is empty");
+		}
+		context.begin();
+		try {
+			long lexStart = System.nanoTime();
+			TokenBuffer tokens = context.lex(json);
+			long emitStart = System.nanoTime();
+			String xml = context.emit();
+			long end = System.nanoTime();
+			readNanos += lexStart - start;
+			converted(new ConversionEvent(path, content.length, readNanos, emitStart - lexStart, end - emitStart,
+					readNanos + end - lexStart, tokens.size(), tokens.maxDepth(), xml.length()));
+			return xml;
+		} finally {
+			context.reset();
+		}
+	}
+
+	private void converted(ConversionEvent event) {
+		for (ConversionListener listener : listeners) {
+			listener.converted(event);
+		}
+	}
+
+	private void failed(String path, Exception error) {
+		for (ConversionListener listener : listeners) {
+			listener.failed(path, error);
+		}
 	}
 
 	private String fileToString(String path) throws IOException, JSONException {
-		String json = null;
+		checkFile(path);
+		return new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+	}
+
+	private void checkFile(String path) throws JSONException {
 		File f = new File(path);
-		if (f.exists() && !f.isDirectory()) {
-			json = new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8).replaceAll("\\s\\s+", "");
-		} else {
+		if (!f.exists() || f.isDirectory()) {
 			throw new JSONException("Path to JSON file not exists");
 		}
-		return json;
+	}
+
+	/**
+	 * @author DEVIAPHAN Conversion which runs on an executor
+	 */
+	private interface Conversion {
+		void run() throws IOException, JSONException;
 	}
 }
@@ -0,0 +1,117 @@
+import java.util.Arrays;
+
+/**
+ * @author DEVIAPHAN Compact token array which keeps only the tokens selected by
+ *         a {@link Projection}. The lexer asks {@link #skipping()} after every
+ *         key and scans the value of a skipped key without passing its tokens.
+ *         Keys on the way to an included path are kept only when their value
+ *         is an object or array. Commas are not kept
+ */
+final class ProjectedTokenBuffer extends TokenBuffer {
+	private static final byte SKIP = 0;
+	private static final byte ANCESTOR = 1;
+	private static final byte INCLUDED = 2;
+
+	private final Projection projection;
+	private byte[] states = new byte[16];
+	private boolean[] arrays = new boolean[16];
+	private Projection.Node[] nodes = new Projection.Node[16];
+	private int depth;
+	private byte keyState;
+	private Projection.Node keyNode;
+	private int keyStart;
+	private int keyLength;
+	private boolean keyEscaped;
+	private boolean skipping;
+
+	ProjectedTokenBuffer(String source, int capacity, Projection projection) {
+		super(source, capacity);
+		this.projection = projection;
+	}
+
+	@Override
+	void add(Type type, int start, int length, boolean escaped) {
+		switch (type) {
+		case KEY:
+			selectKey(start, length, escaped);
+			if (keyState == INCLUDED) {
+				super.add(type, start, length, escaped);
+			}
+			break;
+		case OpenObject:
+		case OpenArray:
+			if (depth == 0) {
+				push(type, projection.includesAll() ? INCLUDED : ANCESTOR, projection.root());
+			} else if (arrays[depth - 1]) {
+				push(type, states[depth - 1], nodes[depth - 1]);
+			} else {
+				if (keyState == ANCESTOR) {
+					super.add(Type.KEY, keyStart, keyLength, keyEscaped);
+				}
+				push(type, keyState, keyNode);
+			}
+			super.add(type, start, length, escaped);
+			break;
+		case CloseObject:
+		case CloseArray:
+			depth--;
+			nodes[depth] = null;
+			super.add(type, start, length, escaped);
+			break;
+		case STR:
+		case NUMB:
+			if ((arrays[depth - 1] ? states[depth - 1] : keyState) == INCLUDED) {
+				super.add(type, start, length, escaped);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	@Override
+	boolean skipping() {
+		return skipping;
+	}
+
+	@Override
+	void endSkip() {
+		skipping = false;
+	}
+
+	private void selectKey(int start, int length, boolean escaped) {
+		Projection.Node parent = nodes[depth - 1];
+		Projection.Node child = null;
+		if (parent != null && escaped) {
+			String key = StringScanner.decode(source(), start, start + length);
+			child = parent.child(key, 0, key.length());
+		} else if (parent != null) {
+			child = parent.child(source(), start, length);
+		}
+
+		if (child != null && child.exclude) {
+			keyState = SKIP;
+		} else if (states[depth - 1] == INCLUDED || (child != null && child.include)) {
+			keyState = INCLUDED;
+		} else {
+			keyState = child != null && child.hasChildren() ? ANCESTOR : SKIP;
+		}
+		keyNode = child;
+		keyStart = start;
+		keyLength = length;
+		keyEscaped = escaped;
+		skipping = keyState == SKIP;
+	}
+
+	private void push(Type type, byte state, Projection.Node node) {
+		if (depth == states.length) {
+			states = Arrays.copyOf(states, depth * 2);
+			arrays = Arrays.copyOf(arrays, depth * 2);
+			nodes = Arrays.copyOf(nodes, depth * 2);
+		}
+		states[depth] = state;
+		arrays[depth] = type == Type.OpenArray;
+		nodes[depth] = node;
+		depth++;
+	}
+}
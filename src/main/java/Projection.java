@@ -0,0 +1,128 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author DEVIAPHAN Selection of the parts of a document to convert. A path is
+ *         a list of keys separated by dots, such as "customer.address"; array
+ *         elements are matched by the path of the array, "[]" may be written
+ *         after the key of an array as in "orders[].id". With include paths
+ *         only those subtrees and the objects on the way to them are
+ *         converted, exclude paths are removed from the result. Skipped
+ *         subtrees are only scanned for their end
+ */
+public final class Projection {
+	private final Node root = new Node(null);
+	private final boolean includeAll;
+
+	private Projection(List<String> includes, List<String> excludes) {
+		for (String path : includes) {
+			add(path).include = true;
+		}
+		for (String path : excludes) {
+			add(path).exclude = true;
+		}
+		this.includeAll = includes.isEmpty();
+	}
+
+	/**
+	 * @param paths paths of the subtrees to convert
+	 * @return projection which converts only the paths
+	 */
+	public static Projection include(String... paths) {
+		return new Projection(Arrays.asList(paths), new ArrayList<String>());
+	}
+
+	/**
+	 * @param paths paths of the subtrees to skip
+	 * @return projection which converts everything but the paths
+	 */
+	public static Projection exclude(String... paths) {
+		return new Projection(new ArrayList<String>(), Arrays.asList(paths));
+	}
+
+	/**
+	 * @param includes paths of the subtrees to convert, all if empty
+	 * @param excludes paths of the subtrees to skip inside of them
+	 * @return projection of both
+	 */
+	public static Projection of(List<String> includes, List<String> excludes) {
+		return new Projection(includes, excludes);
+	}
+
+	/**
+	 * @return node of the root object
+	 */
+	Node root() {
+		return root;
+	}
+
+	/**
+	 * @return true if the root object is converted as a whole
+	 */
+	boolean includesAll() {
+		return includeAll;
+	}
+
+	private Node add(String path) {
+		if (path == null || path.isEmpty()) {
+			throw new IllegalArgumentException("Path must not be empty");
+		}
+		Node node = root;
+		for (String key : path.split("\\.", -1)) {
+			if (key.endsWith("[]")) {
+				key = key.substring(0, key.length() - 2);
+			}
+			if (key.isEmpty()) {
+				throw new IllegalArgumentException("Empty key in path: " + path);
+			}
+			node = node.child(key, true);
+		}
+		return node;
+	}
+
+	/**
+	 * @author DEVIAPHAN Key of a path with the keys which follow it
+	 */
+	static final class Node {
+		private final String key;
+		private Node[] children = new Node[0];
+		boolean include;
+		boolean exclude;
+
+		Node(String key) {
+			this.key = key;
+		}
+
+		/**
+		 * Finds the child without creating a string of the key
+		 *
+		 * @param json   source of the key
+		 * @param start  offset of the key
+		 * @param length length of the key
+		 * @return child node or null
+		 */
+		Node child(String json, int start, int length) {
+			for (Node child : children) {
+				if (child.key.length() == length && json.regionMatches(start, child.key, 0, length)) {
+					return child;
+				}
+			}
+			return null;
+		}
+
+		boolean hasChildren() {
+			return children.length > 0;
+		}
+
+		private Node child(String key, boolean create) {
+			Node child = child(key, 0, key.length());
+			if (child == null && create) {
+				child = new Node(key);
+				children = Arrays.copyOf(children, children.length + 1);
+				children[children.length - 1] = child;
+			}
+			return child;
+		}
+	}
+}
@@ -0,0 +1,351 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author DEVIAPHAN Incremental parser which is given the UTF-8 bytes of a
+ *         document in chunks of any size. A chunk may end anywhere, even inside
+ *         a string, a number or a multi-byte char: the lexeme is kept and
+ *         continued by the next chunk. Every token is passed to the handler as
+ *         soon as it is complete and the parser never waits for input, so one
+ *         thread can convert many streams
+ */
+public class PushParser {
+	private static final int IDLE = 0;
+	private static final int STRING = 1;
+	private static final int AFTER_STRING = 2;
+	private static final int NUMBER = 3;
+	private static final int BOOL = 4;
+
+	private final JSONHandler handler;
+	private final JSONSyntax syntax = new JSONSyntax();
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT);
+	private byte[] raw = new byte[64];
+	private int rawLength;
+	private int bits;
+	private boolean escaped;
+	private boolean skip;
+	private char[] text = new char[64];
+	private int textLength;
+	private int state = IDLE;
+	private long position;
+	private long start;
+	private boolean finished;
+	private boolean failed;
+
+	/**
+	 * @param handler receiver of the events, for example {@link XMLEmitter}
+	 */
+	public PushParser(JSONHandler handler) {
+		this.handler = handler;
+	}
+
+	/**
+	 * Parses the remaining bytes of the chunk, the buffer is read to its limit
+	 *
+	 * @param chunk next bytes of the document
+	 * @throws IOException   if the handler fails
+	 * @throws JSONException
+	 */
+	public void feed(ByteBuffer chunk) throws IOException, JSONException {
+		checkOpen();
+		try {
+			while (chunk.hasRemaining()) {
+				switch (state) {
+				case IDLE:
+					readToken(chunk);
+					break;
+				case STRING:
+					readString(chunk);
+					break;
+				case AFTER_STRING:
+					readAfterString(chunk);
+					break;
+				case NUMBER:
+					if (readWhile(chunk, false)) {
+						endNumber();
+					}
+					break;
+				default:
+					if (readWhile(chunk, true)) {
+						endBool();
+					}
+					break;
+				}
+			}
+		} catch (IOException | JSONException | RuntimeException e) {
+			failed = true;
+			throw e;
+		}
+	}
+
+	/**
+	 * Completes the last lexeme, checks that nothing is left open and ends the
+	 * document
+	 *
+	 * @throws IOException   if the handler fails
+	 * @throws JSONException
+	 */
+	public void endOfInput() throws IOException, JSONException {
+		checkOpen();
+		finished = true;
+		try {
+			switch (state) {
+			case STRING:
+				throw new JSONException("The file must not end with \" at " + position);
+			case AFTER_STRING:
+				emit(Type.STR);
+				break;
+			case NUMBER:
+				endNumber();
+				break;
+			case BOOL:
+				endBool();
+				break;
+			default:
+				break;
+			}
+			syntax.end(position);
+			handler.endDocument();
+		} catch (IOException | JSONException | RuntimeException e) {
+			failed = true;
+			throw e;
+		}
+	}
+
+	/**
+	 * @return number of bytes parsed so far
+	 */
+	public long position() {
+		return position;
+	}
+
+	/**
+	 * @return number of objects and arrays that are open now
+	 */
+	public int depth() {
+		return syntax.depth();
+	}
+
+	private void checkOpen() {
+		if (failed) {
+			throw new IllegalStateException("The parser has failed");
+		} else if (finished) {
+			throw new IllegalStateException("The input has ended");
+		}
+	}
+
+	private void readToken(ByteBuffer chunk) throws IOException, JSONException {
+		char character = (char) (chunk.get(chunk.position()) & 0xFF);
+		if (CharClass.isSpace(character)) {
+			chunk.get();
+			position++;
+			return;
+		}
+		start = position;
+		rawLength = 0;
+		bits = 0;
+		escaped = false;
+		skip = false;
+
+		switch (CharClass.of(character)) {
+		case CharClass.OPEN_OBJECT:
+			consume(chunk);
+			emit(Type.OpenObject);
+			break;
+		case CharClass.CLOSE_OBJECT:
+			consume(chunk);
+			emit(Type.CloseObject);
+			break;
+		case CharClass.OPEN_ARRAY:
+			consume(chunk);
+			emit(Type.OpenArray);
+			break;
+		case CharClass.CLOSE_ARRAY:
+			consume(chunk);
+			emit(Type.CloseArray);
+			break;
+		case CharClass.COMMA:
+			consume(chunk);
+			emit(Type.Comma);
+			break;
+		case CharClass.QUOTE:
+			consume(chunk);
+			state = STRING;
+			break;
+		case CharClass.DIGIT:
+		case CharClass.MINUS:
+			state = NUMBER;
+			break;
+		case CharClass.LETTER:
+			state = BOOL;
+			break;
+		default:
+			throw new JSONException("Wtf is this: " + character + " at " + start);
+		}
+	}
+
+	private void readString(ByteBuffer chunk) throws JSONException {
+		int from = chunk.position();
+		int limit = chunk.limit();
+		int pos = from;
+		if (skip) {
+			bits |= chunk.get(pos);
+			pos++;
+			skip = false;
+		}
+		byte b;
+		while (pos < limit && (b = chunk.get(pos)) != '"') {
+			if (b >= 0 && b < ' ') {
+				throw StringScanner.controlChar(position + pos - from);
+			}
+			bits |= b;
+			pos++;
+			if (b == '\\') {
+				escaped = true;
+				if (pos < limit) {
+					bits |= chunk.get(pos);
+					pos++;
+				} else {
+					skip = true;
+				}
+			}
+		}
+		appendRaw(chunk, from, pos - from);
+		if (pos == limit) {
+			return;
+		}
+		consume(chunk);
+
+		if (rawLength == 0) {
+			throw new JSONException("Empty a key or value at " + start);
+		}
+		decode(bits < 0);
+		if (escaped) {
+			textLength = StringScanner.decode(text, textLength, start + 1);
+		}
+		state = AFTER_STRING;
+	}
+
+	private void readAfterString(ByteBuffer chunk) throws IOException, JSONException {
+		byte b = chunk.get(chunk.position());
+		if (CharClass.isSpace((char) (b & 0xFF))) {
+			consume(chunk);
+		} else if (b == ':') {
+			consume(chunk);
+			emit(Type.KEY);
+		} else {
+			emit(Type.STR);
+		}
+	}
+
+	/**
+	 * Appends the numeric or letter chars at the start of the chunk to the
+	 * lexeme
+	 *
+	 * @return true if the lexeme ended in this chunk
+	 */
+	private boolean readWhile(ByteBuffer chunk, boolean letters) {
+		int from = chunk.position();
+		int limit = chunk.limit();
+		int pos = from;
+		while (pos < limit) {
+			char character = (char) (chunk.get(pos) & 0xFF);
+			if (letters ? !CharClass.isLetter(character) : !CharClass.isNumeric(character)) {
+				break;
+			}
+			pos++;
+		}
+		appendRaw(chunk, from, pos - from);
+		return pos < limit;
+	}
+
+	private void endNumber() throws IOException, JSONException {
+		decode(false);
+		if (!CharClass.isNumber(text, 0, textLength)) {
+			throw new JSONException("This is not a number at " + start);
+		}
+		emit(Type.NUMB);
+	}
+
+	private void endBool() throws IOException, JSONException {
+		decode(false);
+		if (!CharClass.isBool(text, 0, textLength)) {
+			throw new JSONException("Value is not boolean: " + new String(text, 0, textLength) + " at " + start);
+		}
+		emit(Type.STR);
+	}
+
+	private void emit(Type type) throws IOException, JSONException {
+		state = IDLE;
+		syntax.accept(type, start);
+		switch (type) {
+		case OpenObject:
+			handler.startObject();
+			break;
+		case CloseObject:
+			handler.endObject();
+			break;
+		case OpenArray:
+			handler.startArray();
+			break;
+		case CloseArray:
+			handler.endArray();
+			break;
+		case KEY:
+			handler.key(text, 0, textLength);
+			break;
+		case STR:
+		case NUMB:
+			handler.value(type, text, 0, textLength);
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void consume(ByteBuffer chunk) {
+		chunk.position(chunk.position() + 1);
+		position++;
+	}
+
+	private void appendRaw(ByteBuffer chunk, int from, int length) {
+		if (rawLength + length > raw.length) {
+			byte[] grown = new byte[Math.max(raw.length * 2, rawLength + length)];
+			System.arraycopy(raw, 0, grown, 0, rawLength);
+			raw = grown;
+		}
+		chunk.get(raw, rawLength, length);
+		rawLength += length;
+		position += length;
+	}
+
+	private void decode(boolean multiByte) throws JSONException {
+		if (text.length < rawLength) {
+			text = new char[Math.max(text.length * 2, rawLength)];
+		}
+		if (!multiByte) {
+			for (int i = 0; i < rawLength; i++) {
+				text[i] = (char) raw[i];
+			}
+			textLength = rawLength;
+			return;
+		}
+
+		CharBuffer chars = CharBuffer.wrap(text);
+		decoder.reset();
+		CoderResult result = decoder.decode(ByteBuffer.wrap(raw, 0, rawLength), chars, true);
+		if (!result.isError()) {
+			result = decoder.flush(chars);
+		}
+		if (result.isError()) {
+			throw new JSONException("Malformed UTF-8 in string at " + start);
+		}
+		textLength = chars.position();
+	}
+}
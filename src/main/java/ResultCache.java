@@ -0,0 +1,506 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @author DEVIAPHAN Cache of converted documents. A file is known by its path,
+ *         size and modification time; a file which is not known is read and
+ *         looked up by the SHA-256 of its content, so a touched or copied file
+ *         is not converted again. The XML is kept in memory up to a number of
+ *         bytes, the least recently used documents are evicted first, and
+ *         optionally in a directory as gzip files which outlive the process
+ */
+public class ResultCache {
+	private static final int MAX_FILES = 1 << 16;
+	/** Changes with every change of the XML output, files of older versions are not read */
+	private static final String DISK_PREFIX = "v2-";
+	private static final String DISK_SUFFIX = ".xml.gz";
+	private static final int DISK_BUFFER = 1 << 16;
+
+	private final long maxMemoryBytes;
+	private final Path diskDir;
+	private final long maxDiskBytes;
+	private final LinkedHashMap<FileKey, String> files = new LinkedHashMap<FileKey, String>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<FileKey, String> eldest) {
+			return size() > MAX_FILES;
+		}
+	};
+	private final LinkedHashMap<String, String> documents = new LinkedHashMap<>(16, 0.75f, true);
+	/** Held while files are added to or deleted from the directory */
+	private final Object diskLock = new Object();
+	private long memoryBytes;
+	private long diskBytes;
+
+	private long requests;
+	private long fileHits;
+	private long contentHits;
+	private long diskHits;
+	private long misses;
+	private long evictions;
+	private long bytesSaved;
+
+	/**
+	 * Cache in memory only
+	 *
+	 * @param maxMemoryBytes maximal size of the cached XML in memory
+	 */
+	public ResultCache(long maxMemoryBytes) {
+		this.maxMemoryBytes = maxMemoryBytes;
+		this.diskDir = null;
+		this.maxDiskBytes = 0;
+	}
+
+	/**
+	 * Cache in memory and in a directory
+	 *
+	 * @param maxMemoryBytes maximal size of the cached XML in memory
+	 * @param diskDir        directory of the compressed XML, it is created if
+	 *                       needed
+	 * @param maxDiskBytes   maximal size of the compressed files, the least
+	 *                       recently used are deleted first
+	 * @throws IOException
+	 */
+	public ResultCache(long maxMemoryBytes, Path diskDir, long maxDiskBytes) throws IOException {
+		this.maxMemoryBytes = maxMemoryBytes;
+		this.diskDir = diskDir;
+		this.maxDiskBytes = maxDiskBytes;
+		Files.createDirectories(diskDir);
+		for (DiskFile file : diskFiles()) {
+			diskBytes += file.size;
+		}
+		trimDisk();
+	}
+
+	/**
+	 * Returns the XML of a file from the cache or converts it
+	 *
+	 * @param file       JSON file
+	 * @param conversion conversion of the content on a miss
+	 * @return xml of the file
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public String get(Path file, Conversion conversion) throws IOException, JSONException {
+		BasicFileAttributes before = Files.readAttributes(file, BasicFileAttributes.class);
+		FileKey key = new FileKey(file, before);
+		String hash;
+		String xml;
+		synchronized (this) {
+			requests++;
+			hash = files.get(key);
+			xml = hash == null ? null : documents.get(hash);
+			if (xml != null) {
+				fileHits++;
+				bytesSaved += key.size;
+				return xml;
+			}
+		}
+		if (hash != null && (xml = readDisk(hash)) != null) {
+			diskHit(key, hash, xml, key.size);
+			return xml;
+		}
+
+		byte[] content = Files.readAllBytes(file);
+		hash = sha256(content);
+		BasicFileAttributes after = Files.readAttributes(file, BasicFileAttributes.class);
+		boolean unchanged = key.equals(new FileKey(file, after));
+		synchronized (this) {
+			xml = documents.get(hash);
+			if (xml != null) {
+				contentHits++;
+				bytesSaved += content.length;
+				if (unchanged) {
+					files.put(key, hash);
+				}
+				return xml;
+			}
+		}
+		if ((xml = readDisk(hash)) != null) {
+			diskHit(unchanged ? key : null, hash, xml, content.length);
+			return xml;
+		}
+
+		xml = conversion.convert(content);
+		synchronized (this) {
+			misses++;
+			if (unchanged) {
+				files.put(key, hash);
+			}
+			putMemory(hash, xml);
+		}
+		writeDisk(hash, xml);
+		return xml;
+	}
+
+	/**
+	 * Removes everything from memory, the files on disk are kept
+	 */
+	public synchronized void clear() {
+		files.clear();
+		documents.clear();
+		memoryBytes = 0;
+	}
+
+	/**
+	 * @return counters of the cache
+	 */
+	public synchronized Stats getStats() {
+		return new Stats(requests, fileHits, contentHits, diskHits, misses, evictions, bytesSaved, documents.size(),
+				memoryBytes, diskBytes);
+	}
+
+	private synchronized void diskHit(FileKey key, String hash, String xml, long saved) {
+		diskHits++;
+		bytesSaved += saved;
+		if (key != null) {
+			files.put(key, hash);
+		}
+		putMemory(hash, xml);
+	}
+
+	private void putMemory(String hash, String xml) {
+		long bytes = memorySize(xml);
+		if (bytes > maxMemoryBytes) {
+			return;
+		}
+		String previous = documents.put(hash, xml);
+		if (previous != null) {
+			memoryBytes -= memorySize(previous);
+		}
+		memoryBytes += bytes;
+		Iterator<String> eldest = documents.values().iterator();
+		while (memoryBytes > maxMemoryBytes) {
+			memoryBytes -= memorySize(eldest.next());
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	private String readDisk(String hash) {
+		if (diskDir == null) {
+			return null;
+		}
+		Path file = diskDir.resolve(DISK_PREFIX + hash + DISK_SUFFIX);
+		if (!Files.exists(file)) {
+			return null;
+		}
+		byte[] xml;
+		try (InputStream input = new GZIPInputStream(Files.newInputStream(file), DISK_BUFFER)) {
+			xml = readAll(input);
+		} catch (IOException e) {
+			// a damaged or concurrently deleted file is converted again
+			return null;
+		}
+		try {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// the use is only recorded for the trim, the file may be deleted by it
+		}
+		return new String(xml, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes the XML to the directory unless a file of the same content is
+	 * there. A failure is reported and the conversion still succeeds
+	 */
+	private void writeDisk(String hash, String xml) {
+		if (diskDir == null) {
+			return;
+		}
+		Path file = diskDir.resolve(DISK_PREFIX + hash + DISK_SUFFIX);
+		if (Files.exists(file)) {
+			return;
+		}
+		Path temp = null;
+		try {
+			temp = Files.createTempFile(diskDir, hash, ".tmp");
+			try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(temp), DISK_BUFFER)) {
+				output.write(xml.getBytes(StandardCharsets.UTF_8));
+			}
+			long size = Files.size(temp);
+			synchronized (diskLock) {
+				// another thread may have written the same content meanwhile
+				if (!Files.exists(file)) {
+					Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+					synchronized (this) {
+						diskBytes += size;
+					}
+				}
+			}
+			trimDisk();
+		} catch (IOException e) {
+			System.err.println("Result cache: " + file + " is not written: " + e);
+		} finally {
+			if (temp != null) {
+				try {
+					Files.deleteIfExists(temp);
+				} catch (IOException e) {
+					System.err.println("Result cache: " + temp + " is not deleted: " + e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Deletes the least recently used files until the directory fits, by the
+	 * sizes and times read once when the directory is listed
+	 */
+	private void trimDisk() throws IOException {
+		synchronized (diskLock) {
+			synchronized (this) {
+				if (diskBytes <= maxDiskBytes) {
+					return;
+				}
+			}
+			List<DiskFile> cached = diskFiles();
+			cached.sort(Comparator.comparing((DiskFile file) -> file.modified));
+			long total = 0;
+			for (DiskFile file : cached) {
+				total += file.size;
+			}
+			for (Iterator<DiskFile> oldest = cached.iterator(); total > maxDiskBytes && oldest.hasNext();) {
+				DiskFile file = oldest.next();
+				try {
+					Files.deleteIfExists(file.path);
+					total -= file.size;
+				} catch (IOException e) {
+					// still counted, deleted by a later trim
+				}
+			}
+			synchronized (this) {
+				diskBytes = total;
+			}
+		}
+	}
+
+	/**
+	 * @return the cached files with their times and sizes, the files deleted
+	 *         while the directory is listed are left out
+	 */
+	private List<DiskFile> diskFiles() throws IOException {
+		List<DiskFile> cached = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(diskDir, DISK_PREFIX + "*" + DISK_SUFFIX)) {
+			for (Path file : stream) {
+				try {
+					cached.add(new DiskFile(file, Files.readAttributes(file, BasicFileAttributes.class)));
+				} catch (IOException e) {
+					// deleted since it was listed
+				}
+			}
+		}
+		return cached;
+	}
+
+	private static long memorySize(String xml) {
+		return 2L * xml.length();
+	}
+
+	private static byte[] readAll(InputStream input) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[DISK_BUFFER];
+		int read;
+		while ((read = input.read(buffer)) != -1) {
+			bytes.write(buffer, 0, read);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static String sha256(byte[] content) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+		StringBuilder hex = new StringBuilder(64);
+		for (byte b : digest.digest(content)) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * @author DEVIAPHAN Conversion of a JSON file on a miss
+	 */
+	public interface Conversion {
+		/**
+		 * @param content bytes of the file
+		 * @return xml string
+		 */
+		String convert(byte[] content) throws IOException, JSONException;
+	}
+
+	/**
+	 * @author DEVIAPHAN Identity of a file version
+	 */
+	private static final class FileKey {
+		private final Path path;
+		private final long size;
+		private final long modified;
+
+		FileKey(Path path, BasicFileAttributes attributes) {
+			this.path = path.toAbsolutePath().normalize();
+			this.size = attributes.size();
+			this.modified = attributes.lastModifiedTime().toMillis();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof FileKey)) {
+				return false;
+			}
+			FileKey other = (FileKey) o;
+			return size == other.size && modified == other.modified && path.equals(other.path);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * path.hashCode() + Long.hashCode(size)) + Long.hashCode(modified);
+		}
+	}
+
+	/**
+	 * @author DEVIAPHAN A file of the directory as it was listed
+	 */
+	private static final class DiskFile {
+		private final Path path;
+		private final FileTime modified;
+		private final long size;
+
+		DiskFile(Path path, BasicFileAttributes attributes) {
+			this.path = path;
+			this.modified = attributes.lastModifiedTime();
+			this.size = attributes.size();
+		}
+	}
+
+	/**
+	 * @author DEVIAPHAN Counters of a cache
+	 */
+	public static class Stats {
+		private final long requests;
+		private final long fileHits;
+		private final long contentHits;
+		private final long diskHits;
+		private final long misses;
+		private final long evictions;
+		private final long bytesSaved;
+		private final int documents;
+		private final long memoryBytes;
+		private final long diskBytes;
+
+		Stats(long requests, long fileHits, long contentHits, long diskHits, long misses, long evictions,
+				long bytesSaved, int documents, long memoryBytes, long diskBytes) {
+			this.requests = requests;
+			this.fileHits = fileHits;
+			this.contentHits = contentHits;
+			this.diskHits = diskHits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.bytesSaved = bytesSaved;
+			this.documents = documents;
+			this.memoryBytes = memoryBytes;
+			this.diskBytes = diskBytes;
+		}
+
+		public long getRequests() {
+			return requests;
+		}
+
+		/**
+		 * @return hits by path, size and modification time
+		 */
+		public long getFileHits() {
+			return fileHits;
+		}
+
+		/**
+		 * @return hits by the hash of the content in memory
+		 */
+		public long getContentHits() {
+			return contentHits;
+		}
+
+		/**
+		 * @return hits read from the directory
+		 */
+		public long getDiskHits() {
+			return diskHits;
+		}
+
+		public long getMisses() {
+			return misses;
+		}
+
+		public long getEvictions() {
+			return evictions;
+		}
+
+		/**
+		 * @return bytes of JSON which were not converted again
+		 */
+		public long getBytesSaved() {
+			return bytesSaved;
+		}
+
+		/**
+		 * @return share of the requests answered from the cache
+		 */
+		public double getHitRate() {
+			return requests == 0 ? 0 : (double) (fileHits + contentHits + diskHits) / requests;
+		}
+
+		public int getDocuments() {
+			return documents;
+		}
+
+		public long getMemoryBytes() {
+			return memoryBytes;
+		}
+
+		public long getDiskBytes() {
+			return diskBytes;
+		}
+
+		/**
+		 * Prints the hit rate and the counters
+		 *
+		 * @param out destination of the report
+		 */
+		public void print(PrintStream out) {
+			out.println(toString());
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT,
+					"Result cache: %d requests, hit rate %.1f%% (file %d, content %d, disk %d), %d misses, "
+							+ "%d evictions, %d bytes saved, %d documents, %d bytes in memory, %d bytes on disk",
+					requests, getHitRate() * 100, fileHits, contentHits, diskHits, misses, evictions, bytesSaved,
+					documents, memoryBytes, diskBytes);
+		}
+	}
+}
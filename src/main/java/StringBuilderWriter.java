@@ -0,0 +1,57 @@
+import java.io.Writer;
+
+/**
+ * @author DEVIAPHAN Unsynchronized writer which appends to a string builder
+ */
+final class StringBuilderWriter extends Writer {
+	private final StringBuilder builder;
+
+	StringBuilderWriter(StringBuilder builder) {
+		this.builder = builder;
+	}
+
+	@Override
+	public void write(int c) {
+		builder.append((char) c);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) {
+		builder.append(cbuf, off, len);
+	}
+
+	@Override
+	public void write(String str) {
+		builder.append(str);
+	}
+
+	@Override
+	public void write(String str, int off, int len) {
+		builder.append(str, off, off + len);
+	}
+
+	@Override
+	public Writer append(CharSequence csq) {
+		builder.append(csq);
+		return this;
+	}
+
+	@Override
+	public Writer append(char c) {
+		builder.append(c);
+		return this;
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public String toString() {
+		return builder.toString();
+	}
+}
@@ -0,0 +1,344 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * @author DEVIAPHAN Scanner of the strings of one JSON document. The closing
+ *         quote of a string is found by {@link String#indexOf(int, int)}; only
+ *         a string which holds a backslash is walked char by char, where every
+ *         escape is checked and skipped, so an escaped quote does not end the
+ *         string. The position of the next backslash is kept from one string to
+ *         the next, so the document is searched for backslashes once. The text
+ *         between the quotes is checked for an unescaped control char, which
+ *         RFC 8259 does not allow. The text keeps its escapes until it is
+ *         written: the escapes are decoded and the text is XML-escaped in one
+ *         pass, which copies the runs between the special chars at once
+ */
+final class StringScanner {
+	private static final int UNKNOWN = -1;
+	private static final int NONE = Integer.MAX_VALUE;
+	private static final byte PLAIN = 0;
+	private static final byte STOP = 1;
+	private static final byte[] XML = new byte[128];
+	private static final char[] AMP = "&amp;".toCharArray();
+	private static final char[] LT = "&lt;".toCharArray();
+	private static final char[] GT = "&gt;".toCharArray();
+	private static final char[] CR = "&#13;".toCharArray();
+	/** Written for the chars which XML 1.0 cannot represent */
+	private static final char REPLACEMENT = '\uFFFD';
+
+	static {
+		for (char c = 0; c < 0x20; c++) {
+			XML[c] = STOP;
+		}
+		XML['\t'] = PLAIN;
+		XML['\n'] = PLAIN;
+		XML['\\'] = STOP;
+		XML['&'] = STOP;
+		XML['<'] = STOP;
+		XML['>'] = STOP;
+	}
+
+	private final String json;
+	private int escape = UNKNOWN;
+	private boolean escaped;
+
+	/**
+	 * @param json document the strings are in
+	 */
+	StringScanner(String json) {
+		this.json = json;
+	}
+
+	/**
+	 * Finds the closing quote of a string and checks its chars
+	 *
+	 * @param from index after the opening quote
+	 * @param to   index after the last char which may be read
+	 * @return index of the closing quote or -1 if the string is not closed
+	 *         before to
+	 * @throws JSONException if an escape is invalid or a control char is not
+	 *                       escaped
+	 */
+	int end(int from, int to) throws JSONException {
+		int quote = json.indexOf('"', from);
+		if (quote < 0 || quote >= to) {
+			return -1;
+		}
+		if (escape < from) {
+			escape = json.indexOf('\\', from);
+			if (escape < 0) {
+				escape = NONE;
+			}
+		}
+		escaped = escape < quote;
+		if (escaped) {
+			quote = UNKNOWN;
+			int ci = escape;
+			while (ci < to) {
+				char character = json.charAt(ci);
+				if (character == '"') {
+					quote = ci;
+					break;
+				} else if (character == '\\') {
+					if (ci + 1 >= to) {
+						return -1;
+					}
+					ci += escapeLength(json, ci, to);
+				} else {
+					ci++;
+				}
+			}
+			escape = UNKNOWN;
+			if (quote < 0) {
+				return -1;
+			}
+		}
+		for (int ci = from; ci < quote; ci++) {
+			if (json.charAt(ci) < ' ') {
+				throw controlChar(ci);
+			}
+		}
+		return quote;
+	}
+
+	/**
+	 * Checks the escapes of a string whose closing quote is known, for the
+	 * lexer which has found the quotes in its structural index. The position
+	 * of the next backslash is kept from one string to the next, so the
+	 * document is searched for backslashes once
+	 *
+	 * @param from  index after the opening quote
+	 * @param quote index of the closing quote
+	 * @return true if the string holds an escape
+	 * @throws JSONException if an escape is invalid
+	 */
+	boolean check(int from, int quote) throws JSONException {
+		if (escape < from) {
+			escape = json.indexOf('\\', from);
+			if (escape < 0) {
+				escape = NONE;
+			}
+		}
+		if (escape >= quote) {
+			return false;
+		}
+		for (int ci = escape; ci < quote; ci++) {
+			if (json.charAt(ci) == '\\') {
+				ci += escapeLength(json, ci, quote) - 1;
+			}
+		}
+		escape = UNKNOWN;
+		return true;
+	}
+
+	/**
+	 * @return true if the string of the last {@link #end(int, int)} holds an
+	 *         escape
+	 */
+	boolean escaped() {
+		return escaped;
+	}
+
+	/**
+	 * @param position position of an unescaped control char in a string
+	 * @return the error for the lexers
+	 */
+	static JSONException controlChar(long position) {
+		return new JSONException("Unescaped control char in a string at " + position);
+	}
+
+	/**
+	 * Checks the escape at a backslash
+	 *
+	 * @param json  source of the escape
+	 * @param index index of the backslash
+	 * @param to    index after the last char which may be read
+	 * @return number of chars of the escape
+	 * @throws JSONException if the escape is invalid
+	 */
+	static int escapeLength(CharSequence json, int index, int to) throws JSONException {
+		return escapeLength(json, index, to, index);
+	}
+
+	private static int escapeLength(CharSequence json, int index, int to, long position) throws JSONException {
+		char character = index + 1 < to ? json.charAt(index + 1) : 0;
+		switch (character) {
+		case '"':
+		case '\\':
+		case '/':
+		case 'b':
+		case 'f':
+		case 'n':
+		case 'r':
+		case 't':
+			return 2;
+		case 'u':
+			if (index + 6 <= to && isHex(json.charAt(index + 2)) && isHex(json.charAt(index + 3))
+					&& isHex(json.charAt(index + 4)) && isHex(json.charAt(index + 5))) {
+				return 6;
+			}
+			throw new JSONException("Invalid unicode escape at " + position);
+		default:
+			throw new JSONException("Invalid escape \\" + character + " at " + position);
+		}
+	}
+
+	/**
+	 * Copies the text of a string which was checked by {@link #end(int, int)}
+	 * and decodes its escapes
+	 *
+	 * @param json source of the string
+	 * @param from index of the first char of the text
+	 * @param to   index of the closing quote
+	 * @param dst  destination, at least to - from chars long
+	 * @return number of decoded chars
+	 */
+	static int decode(String json, int from, int to, char[] dst) {
+		json.getChars(from, to, dst, 0);
+		return decode(dst, 0, to - from);
+	}
+
+	/**
+	 * Decodes the text of a string which was checked by {@link #end(int, int)}
+	 *
+	 * @param json source of the string
+	 * @param from index of the first char of the text
+	 * @param to   index of the closing quote
+	 * @return the decoded text
+	 */
+	static String decode(String json, int from, int to) {
+		char[] chars = new char[to - from];
+		return new String(chars, 0, decode(json, from, to, chars));
+	}
+
+	/**
+	 * Decodes the checked escapes of a text in place
+	 *
+	 * @param chars  text of the string
+	 * @param offset index of the first char
+	 * @param length number of chars of the text
+	 * @return number of decoded chars, they start at the offset
+	 */
+	static int decode(char[] chars, int offset, int length) {
+		int end = offset + length;
+		int written = offset;
+		for (int ci = offset; ci < end; ci++) {
+			char character = chars[ci];
+			if (character == '\\') {
+				character = unescape(chars, ci);
+				ci += chars[ci + 1] == 'u' ? 5 : 1;
+			}
+			chars[written++] = character;
+		}
+		return written - offset;
+	}
+
+	/**
+	 * Checks and decodes the escapes of a text in place, for the lexers which
+	 * collect the chars of a string before they know its end
+	 *
+	 * @param chars    text of the string
+	 * @param length   number of chars of the text
+	 * @param position position of the text in the input for the errors
+	 * @return number of decoded chars
+	 * @throws JSONException if an escape is invalid
+	 */
+	static int decode(char[] chars, int length, long position) throws JSONException {
+		CharSequence text = CharBuffer.wrap(chars, 0, length);
+		for (int ci = 0; ci < length; ci++) {
+			if (chars[ci] == '\\') {
+				ci += escapeLength(text, ci, length, position + ci) - 1;
+			}
+		}
+		return decode(chars, 0, length);
+	}
+
+	/**
+	 * Writes text content of an element in one pass: escapes are decoded when
+	 * the text has them, &amp;, &lt;, &gt; and a carriage return are replaced
+	 * by their references, the control chars which XML 1.0 cannot represent
+	 * by U+FFFD, and the runs between them are written at once
+	 *
+	 * @param out     destination of the XML
+	 * @param chars   text
+	 * @param offset  index of the first char
+	 * @param length  number of chars
+	 * @param escaped true if the text holds escapes checked by a lexer, false
+	 *                if it is decoded
+	 * @throws IOException
+	 */
+	static void writeXML(Writer out, char[] chars, int offset, int length, boolean escaped) throws IOException {
+		int end = offset + length;
+		int run = offset;
+		for (int ci = offset; ci < end; ci++) {
+			char character = chars[ci];
+			if (isPlain(character) || (character == '\\' && !escaped)) {
+				continue;
+			}
+			out.write(chars, run, ci - run);
+			if (character == '\\') {
+				character = unescape(chars, ci);
+				ci += chars[ci + 1] == 'u' ? 5 : 1;
+			}
+			run = ci + 1;
+			writeReference(out, character);
+		}
+		out.write(chars, run, end - run);
+	}
+
+	private static boolean isPlain(char character) {
+		return character < 128 ? XML[character] == PLAIN : character < '\uFFFE';
+	}
+
+	private static void writeReference(Writer out, char character) throws IOException {
+		switch (character) {
+		case '&':
+			out.write(AMP);
+			break;
+		case '<':
+			out.write(LT);
+			break;
+		case '>':
+			out.write(GT);
+			break;
+		case '\r':
+			out.write(CR);
+			break;
+		default:
+			out.write(isPlain(character) || character == '\\' ? character : REPLACEMENT);
+			break;
+		}
+	}
+
+	/**
+	 * @return the char of the checked escape at the backslash
+	 */
+	private static char unescape(char[] chars, int index) {
+		switch (chars[index + 1]) {
+		case 'b':
+			return '\b';
+		case 'f':
+			return '\f';
+		case 'n':
+			return '\n';
+		case 'r':
+			return '\r';
+		case 't':
+			return '\t';
+		case 'u':
+			int value = 0;
+			for (int i = index + 2; i < index + 6; i++) {
+				value = (value << 4) | Character.digit(chars[i], 16);
+			}
+			return (char) value;
+		default:
+			return chars[index + 1];
+		}
+	}
+
+	private static boolean isHex(char character) {
+		return (character >= '0' && character <= '9') || (character >= 'a' && character <= 'f')
+				|| (character >= 'A' && character <= 'F');
+	}
+}
@@ -0,0 +1,224 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * @author DEVIAPHAN Positions of the structural characters of a JSON document:
+ *         quotes, and brackets, colons and commas outside of strings. The
+ *         UTF-8 bytes are scanned eight at a time as one long (SWAR): every
+ *         structural char is found by bit tricks on the whole word, and the
+ *         bytes inside strings are masked by a prefix XOR of the quote bits
+ *         carried from word to word. A quote after an odd run of backslashes
+ *         is escaped and is not indexed; the rare words with a backslash are
+ *         walked byte by byte to find the escaped bytes, the escape is carried
+ *         to the next word. An unescaped control char in a string is only
+ *         flagged, the lexer reports it. Positions are stored as char indexes
+ *         of the decoded string, so the lexer can jump between them. The bytes
+ *         must be valid UTF-8 for the char indexes to be right
+ */
+final class StructuralIndex {
+	private static final long ONES = 0x0101010101010101L;
+	private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+	private static final long HIGH = 0x8080808080808080L;
+	/** The only bit in which '[' differs from '{' and ']' from '}' */
+	private static final long BRACKET_BIT = 0x2020202020202020L;
+
+	private int[] positions;
+	private int size;
+	private boolean ascii = true;
+	private boolean escapes;
+	private boolean controlChars;
+
+	private StructuralIndex(int capacity) {
+		positions = new int[Math.max(capacity, 16)];
+	}
+
+	/**
+	 * Builds the index of a document
+	 *
+	 * @param utf8 bytes of the document
+	 * @return index of the structural characters
+	 */
+	static StructuralIndex build(byte[] utf8) {
+		StructuralIndex index = new StructuralIndex(utf8.length / 8);
+		ByteBuffer words = ByteBuffer.wrap(utf8).order(ByteOrder.LITTLE_ENDIAN);
+		int length = utf8.length;
+		int[] positions = index.positions;
+		int size = 0;
+		int extraBytes = 0;
+		long seen = 0;
+		long inString = 0;
+		boolean escape = false;
+		int i = 0;
+
+		for (; i + 8 <= length; i += 8) {
+			long word = words.getLong(i);
+			long multiByte = word & HIGH;
+			seen |= multiByte;
+			long quotes = equal(word, '"');
+			long backslashes = equal(word, '\\');
+			if (backslashes != 0 || escape) {
+				index.escapes |= backslashes != 0;
+				long escaped = 0;
+				for (int bit = 7; bit < 64; bit += 8) {
+					if (escape) {
+						escaped |= 1L << bit;
+						escape = false;
+					} else {
+						escape = (backslashes & (1L << bit)) != 0;
+					}
+				}
+				quotes &= ~escaped;
+			}
+			long controls = less(word, ' ');
+			if (quotes == 0 && inString != 0) {
+				index.controlChars |= controls != 0;
+				if (multiByte != 0) {
+					extraBytes += extraBytes(word, -1L);
+				}
+				continue;
+			}
+			long brackets = word | BRACKET_BIT;
+			long structurals = equal(brackets, '{') | equal(brackets, '}') | equal(word, ':') | equal(word, ',');
+
+			long inside = quotes ^ (quotes << 8);
+			inside ^= inside << 16;
+			inside ^= inside << 32;
+			inside ^= inString;
+			inString = inside < 0 ? HIGH : 0;
+			index.controlChars |= (controls & inside) != 0;
+
+			long found = (structurals & ~inside) | quotes;
+			if (found != 0) {
+				if (size + 8 > positions.length) {
+					positions = Arrays.copyOf(positions, positions.length + (positions.length >> 1) + 8);
+				}
+				int base = i - extraBytes;
+				if (multiByte == 0) {
+					do {
+						positions[size++] = base + (Long.numberOfTrailingZeros(found) >>> 3);
+						found &= found - 1;
+					} while (found != 0);
+				} else {
+					do {
+						int bit = Long.numberOfTrailingZeros(found);
+						positions[size++] = base + (bit >>> 3) - extraBytes(word, (1L << bit) - 1);
+						found &= found - 1;
+					} while (found != 0);
+				}
+			}
+			if (multiByte != 0) {
+				extraBytes += extraBytes(word, -1L);
+			}
+		}
+		index.positions = positions;
+		index.size = size;
+		index.ascii = (seen & HIGH) == 0;
+
+		boolean quoted = inString != 0;
+		for (; i < length; i++) {
+			int b = utf8[i] & 0xFF;
+			if (quoted && b < ' ') {
+				index.controlChars = true;
+			}
+			if (escape) {
+				escape = false;
+			} else if (b == '\\') {
+				escape = true;
+				index.escapes = true;
+			} else if (b == '"') {
+				quoted = !quoted;
+				index.add(i - extraBytes);
+			} else if (!quoted && (b == '{' || b == '}' || b == '[' || b == ']' || b == ':' || b == ',')) {
+				index.add(i - extraBytes);
+			}
+			if (b >= 0x80) {
+				index.ascii = false;
+			}
+			if ((b & 0xC0) == 0x80) {
+				extraBytes++;
+			} else if ((b & 0xF8) == 0xF0) {
+				extraBytes--;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @return number of indexed positions
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if the document has no multi-byte chars, then every char
+	 *         index equals its byte index
+	 */
+	boolean isAscii() {
+		return ascii;
+	}
+
+	/**
+	 * @return true if the document has a backslash, then its strings must be
+	 *         checked for escapes
+	 */
+	boolean hasEscapes() {
+		return escapes;
+	}
+
+	/**
+	 * @return true if a string of the document has an unescaped control char
+	 */
+	boolean hasControlChars() {
+		return controlChars;
+	}
+
+	/**
+	 * @param i index of the position
+	 * @return char index of the structural char
+	 */
+	int get(int i) {
+		return positions[i];
+	}
+
+	/**
+	 * @return 0x80 in every byte of the word which equals the char, 0 in the
+	 *         others
+	 */
+	private static long equal(long word, char character) {
+		long diff = word ^ (ONES * character);
+		return ~(((diff & LOW7) + LOW7) | diff | LOW7);
+	}
+
+	/**
+	 * @return 0x80 in every byte of the word which is less than the char, 0 in
+	 *         the others
+	 */
+	private static long less(long word, char character) {
+		return ~(((word & LOW7) + ONES * (0x80 - character)) | word) & HIGH;
+	}
+
+	/**
+	 * Counts the bytes of the word which are not chars of their own: the
+	 * continuation bytes of multi-byte chars, less one for every char outside
+	 * of the BMP which takes two chars
+	 *
+	 * @param word  eight bytes
+	 * @param bytes mask of the bytes to count
+	 */
+	private static int extraBytes(long word, long bytes) {
+		long continuations = word & ~(word << 1) & HIGH & bytes;
+		long fourByteLeads = word & (word << 1) & (word << 2) & (word << 3) & ~(word << 4) & HIGH & bytes;
+		return Long.bitCount(continuations) - Long.bitCount(fourByteLeads);
+	}
+
+	private void add(int position) {
+		if (size == positions.length) {
+			int[] grown = new int[size + (size >> 1)];
+			System.arraycopy(positions, 0, grown, 0, size);
+			positions = grown;
+		}
+		positions[size++] = position;
+	}
+}
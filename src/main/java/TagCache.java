@@ -0,0 +1,184 @@
+/**
+ * @author DEVIAPHAN Bounded cache of XML tags by key name. A key is looked up by
+ *         its chars, so a repeated key creates neither a string nor a tag; the
+ *         least recently used tag is evicted when the cache is full. Not
+ *         thread-safe, every emitter has its own cache
+ */
+public final class TagCache {
+	public static final int DEFAULT_CAPACITY = 256;
+	private static final int MAX_KEY_LENGTH = 128;
+
+	private final int capacity;
+	private final Tag[] table;
+	private final Tag head = new Tag(new char[0], 0);
+	private int size;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param capacity maximal number of tags, 0 disables the cache
+	 */
+	public TagCache(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+		}
+		this.capacity = capacity;
+		this.table = new Tag[capacity == 0 ? 1 : Integer.highestOneBit(capacity * 2 - 1) << 1];
+		head.before = head;
+		head.after = head;
+	}
+
+	/**
+	 * Returns the tag of a key, the chars are only read during the call
+	 *
+	 * @param chars  chars of the key
+	 * @param offset offset of the key
+	 * @param length length of the key
+	 * @return tag of the key
+	 */
+	public Tag get(char[] chars, int offset, int length) {
+		int hash = 0;
+		for (int i = offset; i < offset + length; i++) {
+			hash = 31 * hash + chars[i];
+		}
+		if (capacity == 0 || length > MAX_KEY_LENGTH) {
+			misses++;
+			return new Tag(chars, offset, length, hash);
+		}
+
+		int bucket = hash & (table.length - 1);
+		for (Tag tag = table[bucket]; tag != null; tag = tag.next) {
+			if (tag.hash == hash && tag.matches(chars, offset, length)) {
+				hits++;
+				if (head.after != tag) {
+					unlink(tag);
+					linkFirst(tag);
+				}
+				return tag;
+			}
+		}
+
+		misses++;
+		if (size == capacity) {
+			evict(head.before);
+		}
+		Tag tag = new Tag(chars, offset, length, hash);
+		tag.next = table[bucket];
+		table[bucket] = tag;
+		linkFirst(tag);
+		size++;
+		return tag;
+	}
+
+	/**
+	 * @return number of cached tags
+	 */
+	public int size() {
+		return size;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public String toString() {
+		return "TagCache[size=" + size + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+	}
+
+	private void evict(Tag tag) {
+		unlink(tag);
+		int bucket = tag.hash & (table.length - 1);
+		if (table[bucket] == tag) {
+			table[bucket] = tag.next;
+		} else {
+			Tag previous = table[bucket];
+			while (previous.next != tag) {
+				previous = previous.next;
+			}
+			previous.next = tag.next;
+		}
+		tag.next = null;
+		size--;
+		evictions++;
+	}
+
+	private void linkFirst(Tag tag) {
+		tag.before = head;
+		tag.after = head.after;
+		head.after.before = tag;
+		head.after = tag;
+	}
+
+	private static void unlink(Tag tag) {
+		tag.before.after = tag.after;
+		tag.after.before = tag.before;
+	}
+
+	/**
+	 * @author DEVIAPHAN Open and close tag of a key as chars ready to be
+	 *         written: "&lt;key&gt;\n" and "&lt;/key&gt;\n"
+	 */
+	public static final class Tag {
+		final char[] open;
+		final char[] close;
+		private final int hash;
+		private Tag next;
+		private Tag before;
+		private Tag after;
+
+		/**
+		 * @param name name of the tag
+		 */
+		Tag(String name) {
+			this(name.toCharArray(), 0, name.length(), 0);
+		}
+
+		private Tag(char[] chars, int hash) {
+			this(chars, 0, chars.length, hash);
+		}
+
+		private Tag(char[] chars, int offset, int length, int hash) {
+			this.hash = hash;
+			open = new char[length + 3];
+			open[0] = '<';
+			System.arraycopy(chars, offset, open, 1, length);
+			open[length + 1] = '>';
+			open[length + 2] = '\n';
+			close = new char[length + 4];
+			close[0] = '<';
+			close[1] = '/';
+			System.arraycopy(chars, offset, close, 2, length);
+			close[length + 2] = '>';
+			close[length + 3] = '\n';
+		}
+
+		/**
+		 * @return name of the tag
+		 */
+		public String name() {
+			return new String(open, 1, open.length - 3);
+		}
+
+		private boolean matches(char[] chars, int offset, int length) {
+			if (open.length - 3 != length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (open[i + 1] != chars[offset + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
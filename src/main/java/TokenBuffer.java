@@ -0,0 +1,242 @@
+import java.util.ArrayList;
+
+/**
+ * @author DEVIAPHAN Compact token array. Every token is a type ordinal, a start
+ *         offset and a length in the source JSON kept in parallel primitive
+ *         arrays, so a token costs 9 bytes instead of a {@link Token} and a
+ *         copy of its string. Strings are created only on demand. A string
+ *         with escapes is marked by the high bit of its type and decoded when
+ *         its text is copied out
+ */
+public class TokenBuffer {
+	private static final Type[] TYPES = Type.values();
+	private static final int ESCAPED = 0x80;
+	private static final int TYPE = 0x7F;
+
+	private String source;
+	private byte[] types;
+	private int[] starts;
+	private int[] lengths;
+	private int size;
+	private int maxDepth;
+
+	/**
+	 * @param source   JSON the tokens point into
+	 * @param capacity expected number of tokens
+	 */
+	TokenBuffer(String source, int capacity) {
+		this.source = source;
+		capacity = Math.max(capacity, 16);
+		types = new byte[capacity];
+		starts = new int[capacity];
+		lengths = new int[capacity];
+	}
+
+	void add(Type type, int start, int length) {
+		add(type, start, length, false);
+	}
+
+	/**
+	 * @param type    token type
+	 * @param start   offset of the token text in the source
+	 * @param length  length of the token text in the source
+	 * @param escaped true if the text of the string holds escapes
+	 */
+	void add(Type type, int start, int length, boolean escaped) {
+		if (size == types.length) {
+			int capacity = size + (size >> 1);
+			byte[] grownTypes = new byte[capacity];
+			int[] grownStarts = new int[capacity];
+			int[] grownLengths = new int[capacity];
+			System.arraycopy(types, 0, grownTypes, 0, size);
+			System.arraycopy(starts, 0, grownStarts, 0, size);
+			System.arraycopy(lengths, 0, grownLengths, 0, size);
+			types = grownTypes;
+			starts = grownStarts;
+			lengths = grownLengths;
+		}
+		types[size] = (byte) (escaped ? type.ordinal() | ESCAPED : type.ordinal());
+		starts[size] = start;
+		lengths[size] = length;
+		size++;
+	}
+
+	/**
+	 * Empties the buffer for the tokens of another JSON, the arrays are kept
+	 * unless they are larger than the limit
+	 *
+	 * @param source      JSON the next tokens point into
+	 * @param maxCapacity largest capacity which is kept
+	 */
+	void reset(String source, int maxCapacity) {
+		this.source = source;
+		size = 0;
+		maxDepth = 0;
+		if (types.length > maxCapacity) {
+			types = new byte[16];
+			starts = new int[16];
+			lengths = new int[16];
+		}
+	}
+
+	/**
+	 * Appends the tokens of another buffer over the same source
+	 *
+	 * @param other tokens which follow the tokens of this buffer
+	 */
+	void append(TokenBuffer other) {
+		int capacity = size + other.size;
+		if (capacity > types.length) {
+			byte[] grownTypes = new byte[capacity];
+			int[] grownStarts = new int[capacity];
+			int[] grownLengths = new int[capacity];
+			System.arraycopy(types, 0, grownTypes, 0, size);
+			System.arraycopy(starts, 0, grownStarts, 0, size);
+			System.arraycopy(lengths, 0, grownLengths, 0, size);
+			types = grownTypes;
+			starts = grownStarts;
+			lengths = grownLengths;
+		}
+		System.arraycopy(other.types, 0, types, size, other.size);
+		System.arraycopy(other.starts, 0, starts, size, other.size);
+		System.arraycopy(other.lengths, 0, lengths, size, other.size);
+		size = capacity;
+	}
+
+	/**
+	 * @return true if the value after the last key must be skipped by the lexer
+	 */
+	boolean skipping() {
+		return false;
+	}
+
+	/**
+	 * Called by the lexer after the skipped value
+	 */
+	void endSkip() {}
+
+	/**
+	 * @return number of tokens
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return largest number of objects and arrays open at once
+	 */
+	public int maxDepth() {
+		return maxDepth;
+	}
+
+	void setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * @return JSON the tokens point into
+	 */
+	public String source() {
+		return source;
+	}
+
+	/**
+	 * @param index index of the token
+	 * @return type of the token
+	 */
+	public Type type(int index) {
+		return TYPES[types[checkIndex(index)] & TYPE];
+	}
+
+	/**
+	 * @param index index of the token
+	 * @return true if the text of the token holds escapes which are decoded
+	 *         when it is copied out
+	 */
+	public boolean isEscaped(int index) {
+		return (types[checkIndex(index)] & ESCAPED) != 0;
+	}
+
+	/**
+	 * @param index index of the token
+	 * @return offset of the token text in the source, for strings and keys the
+	 *         offset after the opening quote
+	 */
+	public int start(int index) {
+		return starts[checkIndex(index)];
+	}
+
+	/**
+	 * @param index index of the token
+	 * @return length of the token text in the source, the decoded text may be
+	 *         shorter
+	 */
+	public int length(int index) {
+		return lengths[checkIndex(index)];
+	}
+
+	/**
+	 * Creates the string of a token, prefer {@link #getChars(int, char[])} when
+	 * the chars are only written out
+	 *
+	 * @param index index of the token
+	 * @return text of the token, the code of the type for brackets and commas
+	 */
+	public String text(int index) {
+		Type type = type(index);
+		if (isEscaped(index)) {
+			return StringScanner.decode(source, starts[index], starts[index] + lengths[index]);
+		} else if (type == Type.KEY || type == Type.STR || type == Type.NUMB) {
+			return source.substring(starts[index], starts[index] + lengths[index]);
+		}
+		return type.getCode();
+	}
+
+	/**
+	 * Copies the text of a token as it is in the source, with its escapes
+	 *
+	 * @param index index of the token
+	 * @param dst   destination, at least {@link #length(int)} chars long
+	 */
+	public void getSourceChars(int index, char[] dst) {
+		int start = start(index);
+		source.getChars(start, start + lengths[index], dst, 0);
+	}
+
+	/**
+	 * Copies the text of a token without creating a string, escapes are
+	 * decoded while copying
+	 *
+	 * @param index index of the token
+	 * @param dst   destination, at least {@link #length(int)} chars long
+	 * @return number of chars of the text
+	 */
+	public int getChars(int index, char[] dst) {
+		int start = start(index);
+		int end = start + lengths[index];
+		if (isEscaped(index)) {
+			return StringScanner.decode(source, start, end, dst);
+		}
+		source.getChars(start, end, dst, 0);
+		return end - start;
+	}
+
+	/**
+	 * @return the tokens as objects, as built by
+	 *         {@link JSONObject#buildTokens(String)}
+	 */
+	public ArrayList<Token> toTokens() {
+		ArrayList<Token> tokens = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			tokens.add(new Token(type(i), text(i), false));
+		}
+		return tokens;
+	}
+
+	private int checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Token " + index + " of " + size);
+		}
+		return index;
+	}
+}
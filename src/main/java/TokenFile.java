@@ -0,0 +1,274 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+/**
+ * @author DEVIAPHAN Lexed and checked tokens of a document saved in a binary
+ *         file which is mapped into memory to be emitted again. The file holds
+ *         a header, the type ordinals, the offsets and lengths of the texts and
+ *         a string table of the texts as UTF-16 chars with their escapes
+ *         decoded, where keys and short values are stored once. Opening a
+ *         file reads only the header, the tokens are not checked again. Every
+ *         section is limited to 2 GB
+ */
+public final class TokenFile implements Closeable {
+	private static final int MAGIC = 0x4A58544B;
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 24;
+	private static final int MAX_SHARED_LENGTH = 32;
+	private static final int MAX_SHARED_TEXTS = 1 << 16;
+	private static final int WRITE_BUFFER = 1 << 16;
+	private static final Type[] TYPES = Type.values();
+
+	private final FileChannel channel;
+	private final int size;
+	private final int maxDepth;
+	private final int sourceLength;
+	private final int textLength;
+	private final ByteBuffer types;
+	private final IntBuffer offsets;
+	private final IntBuffer lengths;
+	private final CharBuffer texts;
+
+	private TokenFile(FileChannel channel) throws IOException, JSONException {
+		this.channel = channel;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+			// the header is read in full or the file is too short
+		}
+		if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+			throw new JSONException("Not a token file");
+		} else if (header.getInt(4) != VERSION) {
+			throw new JSONException("Unsupported token file version " + header.getInt(4));
+		}
+		size = header.getInt(8);
+		maxDepth = header.getInt(12);
+		sourceLength = header.getInt(16);
+		textLength = header.getInt(20);
+		long typesAt = HEADER_SIZE;
+		long offsetsAt = align(typesAt + size);
+		long lengthsAt = offsetsAt + 4L * size;
+		long textsAt = lengthsAt + 4L * size;
+		if (size < 0 || textLength < 0 || channel.size() != textsAt + 2L * textLength) {
+			throw new JSONException("Token file is truncated or corrupted");
+		}
+
+		types = map(typesAt, size);
+		offsets = map(offsetsAt, 4L * size).asIntBuffer();
+		lengths = map(lengthsAt, 4L * size).asIntBuffer();
+		texts = map(textsAt, 2L * textLength).asCharBuffer();
+	}
+
+	/**
+	 * Maps a token file
+	 *
+	 * @param path token file written by {@link #write(TokenBuffer, Path)}
+	 * @return the mapped tokens, the file stays open until closed
+	 * @throws IOException
+	 * @throws JSONException if it is not a token file of this version
+	 */
+	public static TokenFile open(Path path) throws IOException, JSONException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new TokenFile(channel);
+		} catch (IOException | JSONException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Saves the tokens of a document
+	 *
+	 * @param tokens lexed and checked tokens
+	 * @param path   destination, it is replaced
+	 * @throws IOException
+	 */
+	public static void write(TokenBuffer tokens, Path path) throws IOException {
+		int size = tokens.size();
+		int[] offsets = new int[size];
+		int[] lengths = new int[size];
+		char[] chars = new char[64];
+		StringBuilder texts = new StringBuilder(tokens.source().length() / 2);
+		HashMap<String, Integer> shared = new HashMap<>();
+		String source = tokens.source();
+
+		for (int i = 0; i < size; i++) {
+			Type type = tokens.type(i);
+			if (type != Type.KEY && type != Type.STR && type != Type.NUMB) {
+				continue;
+			}
+			int length = tokens.length(i);
+			if (length > chars.length) {
+				chars = new char[Math.max(length, chars.length * 2)];
+			}
+			length = tokens.getChars(i, chars);
+			lengths[i] = length;
+			if (length > MAX_SHARED_LENGTH) {
+				offsets[i] = texts.length();
+				texts.append(chars, 0, length);
+				continue;
+			}
+			String text = new String(chars, 0, length);
+			Integer offset = shared.get(text);
+			if (offset == null) {
+				offset = texts.length();
+				texts.append(text);
+				if (shared.size() < MAX_SHARED_TEXTS) {
+					shared.put(text, offset);
+				}
+			}
+			offsets[i] = offset;
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(tokens.maxDepth()).putInt(source.length())
+					.putInt(texts.length());
+			for (int i = 0; i < size; i++) {
+				buffer = spill(channel, buffer, 1);
+				buffer.put((byte) tokens.type(i).ordinal());
+			}
+			while (buffer.position() % 4 != 0) {
+				buffer.put((byte) 0);
+			}
+			for (int i = 0; i < size; i++) {
+				buffer = spill(channel, buffer, 4);
+				buffer.putInt(offsets[i]);
+			}
+			for (int i = 0; i < size; i++) {
+				buffer = spill(channel, buffer, 4);
+				buffer.putInt(lengths[i]);
+			}
+			for (int i = 0; i < texts.length(); i++) {
+				buffer = spill(channel, buffer, 2);
+				buffer.putChar(texts.charAt(i));
+			}
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * @return number of tokens
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return largest number of objects and arrays open at once
+	 */
+	public int maxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @return length of the JSON the tokens were lexed from, in chars
+	 */
+	public int sourceLength() {
+		return sourceLength;
+	}
+
+	/**
+	 * @param index index of the token
+	 * @return type of the token
+	 * @throws JSONException if the file is corrupted
+	 */
+	public Type type(int index) throws JSONException {
+		int ordinal = types.get(index);
+		if (ordinal < 0 || ordinal >= TYPES.length) {
+			throw new JSONException("Token file is corrupted at token " + index);
+		}
+		return TYPES[ordinal];
+	}
+
+	/**
+	 * Passes the tokens to the handler. Chars of keys and values are copied
+	 * from the mapped string table into one scratch array
+	 *
+	 * @param handler receiver of the events
+	 * @throws IOException   if the handler fails
+	 * @throws JSONException if the file is corrupted
+	 */
+	public void parse(JSONHandler handler) throws IOException, JSONException {
+		CharBuffer text = texts.duplicate();
+		char[] chars = new char[64];
+		for (int i = 0; i < size; i++) {
+			Type type = type(i);
+			switch (type) {
+			case OpenObject:
+				handler.startObject();
+				break;
+			case CloseObject:
+				handler.endObject();
+				break;
+			case OpenArray:
+				handler.startArray();
+				break;
+			case CloseArray:
+				handler.endArray();
+				break;
+			case KEY:
+			case STR:
+			case NUMB:
+				int offset = offsets.get(i);
+				int length = lengths.get(i);
+				if (offset < 0 || length < 0 || offset > textLength - length) {
+					throw new JSONException("Token file is corrupted at token " + i);
+				}
+				if (length > chars.length) {
+					chars = new char[Math.max(length, chars.length * 2)];
+				}
+				text.position(offset);
+				text.get(chars, 0, length);
+				if (type == Type.KEY) {
+					handler.key(chars, 0, length);
+				} else {
+					handler.value(type, chars, 0, length);
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		handler.endDocument();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private ByteBuffer map(long position, long length) throws IOException, JSONException {
+		if (length > Integer.MAX_VALUE) {
+			throw new JSONException("Token file section is larger than 2 GB");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static ByteBuffer spill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+		if (buffer.remaining() < needed) {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+		return buffer;
+	}
+
+	private static long align(long position) {
+		return (position + 3) & ~3L;
+	}
+}
@@ -0,0 +1,73 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * @author DEVIAPHAN Cursor over the tokens of a JSON document which are read on
+ *         demand
+ */
+public interface TokenSource extends Closeable {
+	/**
+	 * Moves to the next token and checks that it may follow the previous one
+	 *
+	 * @return type of the token or null at the end of input
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	Type next() throws IOException, JSONException;
+
+	/**
+	 * Moves to the next token and returns it as an object
+	 *
+	 * @return token or null at the end of input
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	default Token nextToken() throws IOException, JSONException {
+		Type next = next();
+		if (next == null) {
+			return null;
+		}
+		boolean opened = next == Type.OpenObject || next == Type.OpenArray;
+		return new Token(next, text(), opened);
+	}
+
+	/**
+	 * @return type of the current token
+	 */
+	Type type();
+
+	/**
+	 * @return text of the current token, the code of the type for brackets and
+	 *         commas
+	 */
+	default String text() {
+		Type type = type();
+		if (type == Type.KEY || type == Type.STR || type == Type.NUMB) {
+			return new String(textBuffer(), 0, textLength());
+		}
+		return type == null ? null : type.getCode();
+	}
+
+	/**
+	 * The buffer is reused by the next call of {@link #next()}
+	 *
+	 * @return chars of the current key or value
+	 */
+	char[] textBuffer();
+
+	/**
+	 * @return number of chars of the current key or value in the text buffer
+	 */
+	int textLength();
+
+	/**
+	 * @return position of the current token in the input
+	 */
+	long position();
+
+	/**
+	 * @return number of objects and arrays that are open after the current
+	 *         token
+	 */
+	int depth();
+}
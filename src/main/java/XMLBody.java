@@ -0,0 +1,246 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author DEVIAPHAN Reader of an XML document whose elements are put inside
+ *         one more element, so the several root elements which
+ *         {@link XMLEmitter} writes for a root object without the root tag are
+ *         read as one document. The prolog with the XML declaration, comments,
+ *         processing instructions and the document type is kept in front of
+ *         the wrapper. The encoding of a byte stream is found as by an XML
+ *         parser: by the byte order mark, the first chars or the declaration
+ */
+final class XMLBody extends Reader {
+	static final String WRAPPER = "xml-body";
+	private static final String START = "<" + WRAPPER + ">";
+	private static final String END = "</" + WRAPPER + ">";
+	private static final int SNIFF = 1024;
+	private static final Pattern ENCODING = Pattern.compile("encoding\\s*=\\s*[\"']([A-Za-z][A-Za-z0-9._-]*)[\"']");
+
+	private final Reader source;
+	private final StringBuilder head = new StringBuilder();
+	private int headIndex;
+	private boolean started;
+	private boolean ended;
+	private long bodyStart = -1;
+
+	/**
+	 * @param source XML document
+	 */
+	XMLBody(Reader source) {
+		this.source = source;
+	}
+
+	/**
+	 * @param in XML document, the encoding is taken from the byte order mark or
+	 *           the declaration, UTF-8 if there is neither
+	 * @return reader of the document inside the wrapper
+	 * @throws IOException
+	 * @throws JSONException if the encoding is not supported
+	 */
+	static XMLBody of(InputStream in) throws IOException, JSONException {
+		InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in);
+		byte[] bytes = new byte[SNIFF];
+		buffered.mark(SNIFF);
+		int length = 0;
+		int read;
+		while (length < SNIFF && (read = buffered.read(bytes, length, SNIFF - length)) > 0) {
+			length += read;
+		}
+		buffered.reset();
+
+		Charset charset = StandardCharsets.UTF_8;
+		int bom = 0;
+		if (startsWith(bytes, length, 0xEF, 0xBB, 0xBF)) {
+			bom = 3;
+		} else if (startsWith(bytes, length, 0xFE, 0xFF)) {
+			charset = StandardCharsets.UTF_16BE;
+			bom = 2;
+		} else if (startsWith(bytes, length, 0xFF, 0xFE)) {
+			charset = StandardCharsets.UTF_16LE;
+			bom = 2;
+		} else if (startsWith(bytes, length, 0x00, 0x3C, 0x00, 0x3F)) {
+			charset = StandardCharsets.UTF_16BE;
+		} else if (startsWith(bytes, length, 0x3C, 0x00, 0x3F, 0x00)) {
+			charset = StandardCharsets.UTF_16LE;
+		} else {
+			charset = declared(new String(bytes, 0, length, StandardCharsets.ISO_8859_1));
+		}
+		for (int skipped = 0; skipped < bom; skipped++) {
+			buffered.read();
+		}
+		return new XMLBody(new InputStreamReader(buffered, charset));
+	}
+
+	/**
+	 * @param offset char offset in the read text
+	 * @return offset of the char in the document, the wrapper tags are not
+	 *         counted
+	 */
+	long sourceOffset(long offset) {
+		return bodyStart >= 0 && offset > bodyStart ? offset - START.length() : offset;
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		}
+		if (!started) {
+			started = true;
+			readProlog();
+		}
+		if (headIndex < head.length()) {
+			int count = Math.min(length, head.length() - headIndex);
+			head.getChars(headIndex, headIndex + count, buffer, offset);
+			headIndex += count;
+			return count;
+		}
+		if (!ended) {
+			int count = source.read(buffer, offset, length);
+			if (count >= 0) {
+				return count;
+			}
+			ended = true;
+			head.setLength(0);
+			head.append(END);
+			headIndex = 0;
+			return read(buffer, offset, length);
+		}
+		return -1;
+	}
+
+	@Override
+	public void close() throws IOException {
+		source.close();
+	}
+
+	/**
+	 * Copies the prolog to the head and puts the start tag of the wrapper in
+	 * front of the first element
+	 */
+	private void readProlog() throws IOException {
+		int character = source.read();
+		if (character == '\uFEFF') {
+			character = source.read();
+		}
+		while (character >= 0) {
+			if (character != '<') {
+				head.append((char) character);
+				character = source.read();
+				continue;
+			}
+			int next = source.read();
+			if (next == '?') {
+				head.append("<?");
+				copyUntil("?>");
+			} else if (next == '!') {
+				head.append("<!");
+				next = source.read();
+				if (next == '-') {
+					head.append('-');
+					copyUntil("-->");
+				} else if (next >= 0) {
+					head.append((char) next);
+					copyDeclaration();
+				}
+			} else {
+				bodyStart = head.length();
+				head.append(START).append('<');
+				if (next >= 0) {
+					head.append((char) next);
+				}
+				return;
+			}
+			character = source.read();
+		}
+		bodyStart = head.length();
+		head.append(START);
+	}
+
+	private void copyUntil(String end) throws IOException {
+		int character;
+		while ((character = source.read()) >= 0) {
+			head.append((char) character);
+			if (endsWith(end)) {
+				return;
+			}
+		}
+	}
+
+	private boolean endsWith(String end) {
+		int from = head.length() - end.length();
+		if (from < 0) {
+			return false;
+		}
+		for (int i = 0; i < end.length(); i++) {
+			if (head.charAt(from + i) != end.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Copies a document type declaration, its internal subset in brackets and
+	 * quoted literals may hold the closing char
+	 */
+	private void copyDeclaration() throws IOException {
+		int brackets = 0;
+		int quote = 0;
+		int character;
+		while ((character = source.read()) >= 0) {
+			head.append((char) character);
+			if (quote != 0) {
+				if (character == quote) {
+					quote = 0;
+				}
+			} else if (character == '"' || character == '\'') {
+				quote = character;
+			} else if (character == '[') {
+				brackets++;
+			} else if (character == ']') {
+				brackets--;
+			} else if (character == '>' && brackets <= 0) {
+				return;
+			}
+		}
+	}
+
+	private static Charset declared(String head) throws JSONException {
+		if (!head.startsWith("<?xml")) {
+			return StandardCharsets.UTF_8;
+		}
+		int end = head.indexOf("?>");
+		Matcher matcher = ENCODING.matcher(end < 0 ? head : head.substring(0, end));
+		if (!matcher.find()) {
+			return StandardCharsets.UTF_8;
+		}
+		try {
+			return Charset.forName(matcher.group(1));
+		} catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+			throw new JSONException("Cannot read XML: unsupported encoding " + matcher.group(1));
+		}
+	}
+
+	private static boolean startsWith(byte[] bytes, int length, int... prefix) {
+		if (length < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if ((bytes[i] & 0xFF) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,225 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * @author DEVIAPHAN The class writes XML directly from JSON events. It follows
+ *         the same tag rules as {@link XMLObject}: array elements are named by
+ *         the key of the array and the document is wrapped in a root tag unless
+ *         the first value of the root object is an object. Tags of repeated
+ *         keys come from a {@link TagCache}, values are decoded and written
+ *         XML-escaped in one pass
+ */
+public class XMLEmitter implements JSONHandler {
+	static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n";
+	static final String ROOT = "root";
+	private static final TagCache.Tag ROOT_TAG = new TagCache.Tag(ROOT);
+
+	private Writer out;
+	private final TagCache tagCache;
+	private final ArrayDeque<TagCache.Tag> stackArrKeys = new ArrayDeque<>();
+	private Type[] containers = new Type[16];
+	private TagCache.Tag[] tags = new TagCache.Tag[16];
+	private int depth;
+	private TagCache.Tag key;
+	private boolean rootDecided;
+	private boolean rootWrapped;
+
+	/**
+	 * The root tag is decided when the first value of the root object is read
+	 *
+	 * @param out destination of the XML, it should be buffered
+	 */
+	public XMLEmitter(Writer out) {
+		this.out = out;
+		this.tagCache = new TagCache(TagCache.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param out      destination of the XML, it should be buffered
+	 * @param wrapRoot whether the document is wrapped in the root tag, see
+	 *                 {@link #isRootWrapped(Type)}
+	 */
+	public XMLEmitter(Writer out, boolean wrapRoot) {
+		this(out, wrapRoot, TagCache.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param out          destination of the XML, it should be buffered
+	 * @param wrapRoot     whether the document is wrapped in the root tag, see
+	 *                     {@link #isRootWrapped(Type)}
+	 * @param tagCacheSize maximal number of cached tags, 0 disables the cache
+	 */
+	public XMLEmitter(Writer out, boolean wrapRoot, int tagCacheSize) {
+		this.out = out;
+		this.tagCache = new TagCache(tagCacheSize);
+		this.rootDecided = true;
+		this.rootWrapped = wrapRoot;
+	}
+
+	/**
+	 * Prepares the emitter for another document. The tag cache is kept, so the
+	 * keys repeated across documents cost nothing
+	 *
+	 * @param out      destination of the XML
+	 * @param wrapRoot whether the document is wrapped in the root tag
+	 */
+	void reset(Writer out, boolean wrapRoot) {
+		this.out = out;
+		stackArrKeys.clear();
+		Arrays.fill(tags, null);
+		depth = 0;
+		key = null;
+		rootDecided = true;
+		rootWrapped = wrapRoot;
+	}
+
+	/**
+	 * Emitter for a part of the array which is the first value of the root
+	 * object. The header and the root tag are not written
+	 *
+	 * @param out      destination of the XML
+	 * @param arrayKey key of the array
+	 * @return emitter with the root object and the array open
+	 */
+	static XMLEmitter insideRootArray(Writer out, String arrayKey) {
+		XMLEmitter emitter = new XMLEmitter(out, true);
+		emitter.resetInsideRootArray(out, arrayKey);
+		return emitter;
+	}
+
+	/**
+	 * Prepares the emitter for a document which is written as an element of
+	 * the array which is the first value of the root object, the tag cache is
+	 * kept
+	 *
+	 * @param out      destination of the XML
+	 * @param arrayKey key of the array
+	 */
+	void resetInsideRootArray(Writer out, String arrayKey) {
+		reset(out, true);
+		push(Type.OpenObject, null);
+		key = tagCache.get(arrayKey.toCharArray(), 0, arrayKey.length());
+		stackArrKeys.push(key);
+		push(Type.OpenArray, key);
+	}
+
+	/**
+	 * @param firstValue type of the token after the first key of the root
+	 *                   object, null for an empty root object
+	 * @return true if the document is wrapped in the root tag
+	 */
+	public static boolean isRootWrapped(Type firstValue) {
+		return firstValue != Type.OpenObject;
+	}
+
+	/**
+	 * @return cache of the tags with its hit, miss and eviction counters
+	 */
+	public TagCache getTagCache() {
+		return tagCache;
+	}
+
+	@Override
+	public void startObject() throws IOException {
+		if (depth == 0) {
+			push(Type.OpenObject, null);
+			if (rootDecided) {
+				writeHeader();
+			}
+			return;
+		}
+		decideRoot(Type.OpenObject);
+		TagCache.Tag tag = inArray() ? stackArrKeys.getFirst() : key;
+		out.write(tag.open);
+		push(Type.OpenObject, tag);
+	}
+
+	@Override
+	public void endObject() throws IOException {
+		depth--;
+		TagCache.Tag tag = tags[depth];
+		tags[depth] = null;
+		if (depth == 0) {
+			decideRoot(null);
+			if (rootWrapped) {
+				out.write(ROOT_TAG.close);
+			}
+		} else {
+			out.write(tag.close);
+		}
+	}
+
+	@Override
+	public void startArray() throws IOException {
+		decideRoot(Type.OpenArray);
+		stackArrKeys.push(key);
+		push(Type.OpenArray, key);
+	}
+
+	@Override
+	public void endArray() throws IOException {
+		depth--;
+		tags[depth] = null;
+		stackArrKeys.pop();
+	}
+
+	@Override
+	public void key(char[] chars, int offset, int length) throws IOException {
+		key = tagCache.get(chars, offset, length);
+	}
+
+	@Override
+	public void value(Type type, char[] chars, int offset, int length) throws IOException {
+		value(type, chars, offset, length, false);
+	}
+
+	@Override
+	public void value(Type type, char[] chars, int offset, int length, boolean escaped) throws IOException {
+		decideRoot(type);
+		TagCache.Tag tag = inArray() ? stackArrKeys.getFirst() : key;
+		out.write(tag.open, 0, tag.open.length - 1);
+		StringScanner.writeXML(out, chars, offset, length, escaped);
+		out.write(tag.close);
+	}
+
+	@Override
+	public void endDocument() throws IOException {
+		out.flush();
+	}
+
+	private void decideRoot(Type firstValue) throws IOException {
+		if (rootDecided) {
+			return;
+		}
+		rootDecided = true;
+		rootWrapped = isRootWrapped(firstValue);
+		writeHeader();
+	}
+
+	private void writeHeader() throws IOException {
+		out.write(HEADER);
+		if (rootWrapped) {
+			out.write(ROOT_TAG.open);
+		}
+	}
+
+	private boolean inArray() {
+		return containers[depth - 1] == Type.OpenArray;
+	}
+
+	private void push(Type type, TagCache.Tag tag) {
+		if (depth == containers.length) {
+			Type[] grownContainers = new Type[depth * 2];
+			TagCache.Tag[] grownTags = new TagCache.Tag[depth * 2];
+			System.arraycopy(containers, 0, grownContainers, 0, depth);
+			System.arraycopy(tags, 0, grownTags, 0, depth);
+			containers = grownContainers;
+			tags = grownTags;
+		}
+		containers[depth] = type;
+		tags[depth] = tag;
+		depth++;
+	}
+}
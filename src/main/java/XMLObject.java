@@ -1,154 +1,136 @@
-import java.util.ArrayDeque;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * @author DEVIAPHAN The class conducts XML parsing
+ * @author DEVIAPHAN The class conducts XML parsing. Tokens are walked in one
+ *         loop and written by {@link XMLEmitter}, which keeps the open objects
+ *         and arrays on an explicit stack and appends to one buffer, so every
+ *         output char is written once and the depth is limited only by the
+ *         heap. It keeps no state between calls and may be shared by threads;
+ *         {@link ConversionContext} reuses the buffers of the conversions
  */
 public class XMLObject {
 	private static final XMLObject INSTANCE = new XMLObject();
-	private final String header = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n";
 
 	private XMLObject() {}
-	
+
 	/**
 	 * Returns a reference to a class instance
-	 * 
+	 *
 	 * @return INSTANSE
 	 */
 	public static XMLObject getInstance() {
 		return INSTANCE;
 	}
-	
+
 	/**
 	 * Here point of start parsing array tokens to XML
-	 * 
+	 *
 	 * @param tokens file-based tokens array
 	 * @return xml string
 	 */
 	public String parseTokens(ArrayList<Token> tokens) {
-		ArrayDeque<String> stackArrKeys = new ArrayDeque<>();
-		StringBuilder xml = new StringBuilder();
-		String key = null;
-		AtomicInteger ci = new AtomicInteger();
+		StringBuilder xml = new StringBuilder(tokens.size() * 16);
+		Type firstValue = tokens.size() > 2 ? tokens.get(2).getType() : null;
+		XMLEmitter emitter = new XMLEmitter(new StringBuilderWriter(xml), XMLEmitter.isRootWrapped(firstValue));
+		char[] chars = new char[64];
 
 		try {
-			xml = parseAt(tokens, stackArrKeys, key, ci);
-		} catch (JSONException e) {
+			for (Token token : tokens) {
+				chars = parseToken(token, emitter, chars);
+			}
+			emitter.endDocument();
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
-
-		headerRootTag(xml, tokens);
 		return xml.toString();
 	}
 
-	private StringBuilder parseAt(ArrayList<Token> tokens, ArrayDeque<String> stackArrKeys, String key, AtomicInteger ci)
-			throws JSONException {
-		Type tokenType = tokens.get(ci.get()).getType();
-
-		if (tokenType.equals(Type.OpenObject)) {
-			ci.set(ci.get() + 1);
-			return parseObj(tokens, stackArrKeys, key, ci);
-		} else if (tokenType.equals(Type.OpenArray)) {
-			ci.set(ci.get() + 1);
-			return parseArray(tokens, stackArrKeys, key, ci);
-		} else {
-			throw new JSONException("Called parseAt() not in the beginning of object or array, but at " + ci.get());
-		}
-	}
-
-	private StringBuilder parseObj(ArrayList<Token> tokens, ArrayDeque<String> stackArrKeys, String key, AtomicInteger ci)
-			throws JSONException {
-		StringBuilder xml = new StringBuilder();
-		Token token;
-		Type tokenType;
-
-		while (!tokens.get(ci.get()).getType().equals(Type.CloseObject)) {
-			token = tokens.get(ci.get());
-			tokenType = token.getType();
+	/**
+	 * Here point of start parsing compact token array to XML. Strings of keys
+	 * and values are created only when they are written out
+	 *
+	 * @param tokens file-based compact token array
+	 * @return xml string
+	 */
+	public String parseTokens(TokenBuffer tokens) {
+		StringBuilder xml = new StringBuilder(tokens.source().length() + (tokens.source().length() >> 1));
+		Type firstValue = tokens.size() > 2 ? tokens.type(2) : null;
+		XMLEmitter emitter = new XMLEmitter(new StringBuilderWriter(xml), XMLEmitter.isRootWrapped(firstValue));
 
-			if (tokenType.equals(Type.KEY)) {
-				key = token.getStr();
-			} else if (tokenType.equals(Type.STR)) {
-				xml.append(wrapperString(key, token.getStr()));
-			} else if (tokenType.equals(Type.NUMB)) {
-				xml.append(wrapperString(key, token.getStr()));
-			} else if (!tokenType.equals(Type.Comma)) {
-				findObjArrInParseObj(tokenType, stackArrKeys, key, xml, tokens, ci);
-			}
-			ci.set(ci.get() + 1);
+		try {
+			JSONObject.getInstance().parse(tokens, emitter);
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
-		return xml;
+		return xml.toString();
 	}
 
-	private void findObjArrInParseObj(Type tokenType, ArrayDeque<String> stackArrKeys, String key, StringBuilder xml, ArrayList<Token> tokens, AtomicInteger ci) throws JSONException {
-		if (tokenType.equals(Type.OpenArray)) {
-			stackArrKeys.push(key);
-			xml.append(parseAt(tokens, stackArrKeys, key, ci));
-		} else if (tokenType.equals(Type.OpenObject)) {
-			wrapObjInParseObj(key, xml, tokens, stackArrKeys, ci);
-		} else {
-			xml.append(parseAt(tokens, stackArrKeys, key, ci));
+	/**
+	 * Writes the tokens of a mapped token file as XML, the tokens were checked
+	 * when the file was written
+	 *
+	 * @param tokens mapped token file
+	 * @return xml string
+	 * @throws JSONException if the file is corrupted
+	 */
+	public String parseTokens(TokenFile tokens) throws JSONException {
+		StringBuilder xml = new StringBuilder(tokens.sourceLength() + (tokens.sourceLength() >> 1));
+		try {
+			parseTokens(tokens, new StringBuilderWriter(xml));
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
+		return xml.toString();
 	}
 
-	private void wrapObjInParseObj(String key, StringBuilder xml, ArrayList<Token> tokens, ArrayDeque<String> stackArrKeys, AtomicInteger ci) throws JSONException {
-		String tempArrKey = key;
-		xml.append(wrapOpen(tempArrKey));
-		xml.append(parseAt(tokens, stackArrKeys, key, ci));
-		xml.append(wrapClose(tempArrKey));
+	/**
+	 * Writes the tokens of a mapped token file as XML to the writer
+	 *
+	 * @param tokens mapped token file
+	 * @param out    destination of the XML, it should be buffered
+	 * @throws IOException   if the writer fails
+	 * @throws JSONException if the file is corrupted
+	 */
+	public void parseTokens(TokenFile tokens, Writer out) throws IOException, JSONException {
+		Type firstValue = tokens.size() > 2 ? tokens.type(2) : null;
+		tokens.parse(new XMLEmitter(out, XMLEmitter.isRootWrapped(firstValue)));
 	}
 
-	private StringBuilder parseArray(ArrayList<Token> tokens, ArrayDeque<String> stackArrKeys, String key, AtomicInteger ci)
-			throws JSONException {
-		StringBuilder xml = new StringBuilder();
-		Token token;
-		Type tokenType;
-
-		while (!tokens.get(ci.get()).getType().equals(Type.CloseArray)) {
-			token = tokens.get(ci.get());
-			tokenType = token.getType();
-
-			if (tokenType.equals(Type.NUMB)) {
-				xml.append(wrapperString(key, token.getStr()));
-				ci.set(ci.get() + 1);
-			} else if (tokenType.equals(Type.STR)) {
-				xml.append(wrapperString(key, token.getStr()));
-				ci.set(ci.get() + 1);
-			} else if (tokenType.equals(Type.Comma) || tokenType.equals(Type.CloseObject)) {
-				ci.set(ci.get() + 1);
-			} else if (tokenType.equals(Type.OpenObject)) {
-				wrapObjInParseArr(xml, stackArrKeys, tokens, key, ci);
+	private char[] parseToken(Token token, XMLEmitter emitter, char[] chars) throws IOException {
+		Type tokenType = token.getType();
+
+		switch (tokenType) {
+		case OpenObject:
+			emitter.startObject();
+			break;
+		case CloseObject:
+			emitter.endObject();
+			break;
+		case OpenArray:
+			emitter.startArray();
+			break;
+		case CloseArray:
+			emitter.endArray();
+			break;
+		case KEY:
+		case STR:
+		case NUMB:
+			String str = token.getStr();
+			if (str.length() > chars.length) {
+				chars = new char[Math.max(str.length(), chars.length * 2)];
 			}
+			str.getChars(0, str.length(), chars, 0);
+			if (tokenType == Type.KEY) {
+				emitter.key(chars, 0, str.length());
+			} else {
+				emitter.value(tokenType, chars, 0, str.length());
+			}
+			break;
+		default:
+			break;
 		}
-		stackArrKeys.pop();
-		return xml;
-	}
-
-	private void wrapObjInParseArr(StringBuilder xml, ArrayDeque<String> stackArrKeys, ArrayList<Token> tokens, String key, AtomicInteger ci) throws JSONException {
-		xml.append(wrapOpen(stackArrKeys.getFirst()));
-		xml.append(parseAt(tokens, stackArrKeys, key, ci));
-		xml.append(wrapClose(stackArrKeys.getFirst()));
-	}
-
-	private String wrapperString(String key, String value) {
-		return "<" + key + ">" + value + "</" + key + ">\n";
-	}
-
-	private String wrapOpen(String key) {
-		return "<" + key + ">\n";
-	}
-
-	private String wrapClose(String key) {
-		return "</" + key + ">\n";
-	}
-
-	private StringBuilder headerRootTag(StringBuilder xml, ArrayList<Token> tokens) {
-		if (!tokens.get(2).getType().equals(Type.OpenObject)) {
-			xml.insert(0, wrapOpen("root"));
-			xml.append(wrapClose("root"));
-		}
-		xml.insert(0, header);
-		return xml;
+		return chars;
 	}
 }
@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author DEVIAPHAN Publishes the XML of a JSON file as UTF-8 chunks. The
+ *         conversion runs on the executor only as fast as the subscriber
+ *         requests chunks: when the demand is used up the conversion waits, so
+ *         at most one chunk is kept on the heap. The interfaces have the
+ *         methods and the rules of java.util.concurrent.Flow, which the Java 8
+ *         build cannot use, so callers implement {@link Subscriber} and may
+ *         forward its four methods to a Flow subscriber. There is one
+ *         subscriber per publisher
+ */
+public class XMLPublisher {
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+	private final String path;
+	private final Executor executor;
+	private final int chunkSize;
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+
+	/**
+	 * @param path      path to the JSON file
+	 * @param executor  executor which runs the conversion
+	 * @param chunkSize number of bytes in a chunk, the last chunk may be shorter
+	 */
+	public XMLPublisher(String path, Executor executor, int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		}
+		this.path = path;
+		this.executor = executor;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Starts the conversion for the subscriber. A second subscriber receives
+	 * {@link IllegalStateException}
+	 *
+	 * @param subscriber receiver of the chunks
+	 */
+	public void subscribe(Subscriber subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("Subscriber is null");
+		}
+		if (!subscribed.compareAndSet(false, true)) {
+			subscriber.onSubscribe(new Subscription() {
+				@Override
+				public void request(long n) {}
+
+				@Override
+				public void cancel() {}
+			});
+			subscriber.onError(new IllegalStateException("The publisher has already a subscriber"));
+			return;
+		}
+
+		ChunkSubscription subscription = new ChunkSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+		try {
+			executor.execute(subscription::run);
+		} catch (RejectedExecutionException e) {
+			subscriber.onError(e);
+		}
+	}
+
+	/**
+	 * @author DEVIAPHAN Receiver of the chunks, as Flow.Subscriber
+	 */
+	public interface Subscriber {
+		void onSubscribe(Subscription subscription);
+
+		/**
+		 * @param chunk bytes of the XML, the buffer belongs to the subscriber
+		 */
+		void onNext(ByteBuffer chunk);
+
+		void onError(Throwable throwable);
+
+		void onComplete();
+	}
+
+	/**
+	 * @author DEVIAPHAN Demand of a subscriber, as Flow.Subscription
+	 */
+	public interface Subscription {
+		/**
+		 * @param n number of chunks more the subscriber can receive, positive
+		 */
+		void request(long n);
+
+		void cancel();
+	}
+
+	/**
+	 * @author DEVIAPHAN Counts the demand and runs the conversion into a stream
+	 *         of chunks. All signals after onSubscribe come from the thread of
+	 *         the conversion
+	 */
+	private final class ChunkSubscription extends OutputStream implements Subscription {
+		private final Subscriber subscriber;
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition demanded = lock.newCondition();
+		private long demand;
+		private boolean cancelled;
+		private Throwable invalidRequest;
+		private byte[] chunk = new byte[chunkSize];
+		private int length;
+
+		ChunkSubscription(Subscriber subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			lock.lock();
+			try {
+				if (n <= 0) {
+					if (invalidRequest == null) {
+						invalidRequest = new IllegalArgumentException("Requested chunks must be positive: " + n);
+					}
+				} else {
+					demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+				}
+				demanded.signal();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public void cancel() {
+			lock.lock();
+			try {
+				cancelled = true;
+				demanded.signal();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void run() {
+			try {
+				Parser.getInstance().jsonToXML(path, this);
+				if (length > 0) {
+					emit();
+				}
+			} catch (Cancelled e) {
+				return;
+			} catch (IOException | JSONException | RuntimeException e) {
+				if (!isCancelled()) {
+					subscriber.onError(e instanceof Failed ? e.getCause() : e);
+				}
+				return;
+			}
+			if (!isCancelled()) {
+				subscriber.onComplete();
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (length == chunk.length) {
+				emit();
+			}
+			chunk[length++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (length == chunk.length) {
+					emit();
+				}
+				int n = Math.min(len, chunk.length - length);
+				System.arraycopy(b, off, chunk, length, n);
+				length += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		/**
+		 * Waits for demand and sends the chunk
+		 *
+		 * @throws IOException when the subscription is cancelled or the
+		 *                     subscriber requested a wrong number of chunks, to
+		 *                     stop the conversion
+		 */
+		private void emit() throws IOException {
+			lock.lock();
+			try {
+				while (demand == 0 && !cancelled && invalidRequest == null) {
+					demanded.awaitUninterruptibly();
+				}
+				if (cancelled) {
+					throw new Cancelled();
+				}
+				if (invalidRequest != null) {
+					cancelled = true;
+					throw new Failed(invalidRequest);
+				}
+				if (demand != Long.MAX_VALUE) {
+					demand--;
+				}
+			} finally {
+				lock.unlock();
+			}
+			ByteBuffer next = ByteBuffer.wrap(chunk, 0, length);
+			chunk = new byte[chunkSize];
+			length = 0;
+			subscriber.onNext(next);
+		}
+
+		private boolean isCancelled() {
+			lock.lock();
+			try {
+				return cancelled && invalidRequest == null;
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * @author DEVIAPHAN Stops the conversion after a cancel
+	 */
+	private static final class Cancelled extends IOException {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * @author DEVIAPHAN Stops the conversion after a wrong request, the cause
+	 *         is sent to the subscriber
+	 */
+	private static final class Failed extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		Failed(Throwable cause) {
+			super(cause);
+		}
+	}
+}
@@ -0,0 +1,449 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * @author DEVIAPHAN The class reads XML with StAX and returns the JSON tokens
+ *         the XML was converted from, the reverse of {@link XMLEmitter}. The
+ *         document is read inside a wrapper element of {@link XMLBody}, so the
+ *         several root elements which XMLEmitter writes when the first value
+ *         of the root object is an object are read too: the elements of the
+ *         root tag and all other root elements are the members of the root
+ *         object. An element with child elements is an
+ *         object, an element with only text is a value, a number if the text
+ *         is one, and an empty element is an empty object. Consecutive
+ *         siblings with the same name are the elements of an array; whether
+ *         the first of them repeats is found by reading ahead at most the
+ *         given number of events, a longer element which repeats is returned
+ *         as repeated keys. Only the open elements and the events read ahead
+ *         are kept in memory. Attributes, comments and processing
+ *         instructions are ignored
+ */
+public class XMLTokenizer implements TokenSource {
+	public static final int DEFAULT_LOOKAHEAD = 1 << 12;
+	private static final int START = 0;
+	private static final int END = 1;
+	private static final int TEXT = 2;
+	private static final int EOF = 3;
+	private static final ThreadLocal<XMLInputFactory> FACTORIES = ThreadLocal.withInitial(XMLTokenizer::newFactory);
+
+	private final XMLStreamReader reader;
+	private final XMLBody body;
+	private final Closeable source;
+	private final int lookahead;
+	private int[] kinds = new int[16];
+	private String[] texts = new String[16];
+	private long[] positions = new long[16];
+	private int head;
+	private int count;
+	private int xmlDepth;
+	private String eventText;
+	private final Type[] pendingTypes = new Type[8];
+	private final String[] pendingTexts = new String[8];
+	private int pendingIndex;
+	private int pendingCount;
+	private String[] runKeys = new String[16];
+	private boolean[] members = new boolean[16];
+	private int frames;
+	private boolean begun;
+	private boolean rootOpen;
+	private boolean finished;
+	private char[] text = new char[64];
+	private int textLength;
+	private long start;
+	private int depth;
+	private Type type;
+
+	/**
+	 * @param in XML source, the encoding is taken from the declaration
+	 * @throws JSONException if the XML cannot be read
+	 */
+	public XMLTokenizer(InputStream in) throws JSONException {
+		this(in, DEFAULT_LOOKAHEAD);
+	}
+
+	/**
+	 * @param in        XML source, the encoding is taken from the declaration
+	 * @param lookahead maximal number of events read ahead to find a repeated
+	 *                  element
+	 * @throws JSONException if the XML cannot be read
+	 */
+	public XMLTokenizer(InputStream in, int lookahead) throws JSONException {
+		this(in, null, lookahead);
+	}
+
+	/**
+	 * @param reader XML source
+	 * @throws JSONException if the XML cannot be read
+	 */
+	public XMLTokenizer(Reader reader) throws JSONException {
+		this(null, reader, DEFAULT_LOOKAHEAD);
+	}
+
+	private XMLTokenizer(InputStream in, Reader reader, int lookahead) throws JSONException {
+		if (lookahead < 1) {
+			throw new IllegalArgumentException("Lookahead must be positive: " + lookahead);
+		}
+		this.lookahead = lookahead;
+		this.source = in != null ? in : reader;
+		try {
+			this.body = in != null ? XMLBody.of(in) : new XMLBody(reader);
+			this.reader = FACTORIES.get().createXMLStreamReader(body);
+		} catch (IOException e) {
+			throw new JSONException("Cannot read XML: " + e.getMessage());
+		} catch (XMLStreamException e) {
+			throw new JSONException("Cannot read XML: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public Type next() throws IOException, JSONException {
+		while (pendingIndex == pendingCount) {
+			if (finished) {
+				type = null;
+				textLength = 0;
+				return null;
+			}
+			pendingIndex = 0;
+			pendingCount = 0;
+			step();
+		}
+		type = pendingTypes[pendingIndex];
+		String value = pendingTexts[pendingIndex];
+		pendingTexts[pendingIndex++] = null;
+		textLength = 0;
+		if (value != null) {
+			textLength = value.length();
+			if (text.length < textLength) {
+				text = new char[Math.max(text.length * 2, textLength)];
+			}
+			value.getChars(0, textLength, text, 0);
+		}
+		if (type == Type.OpenObject || type == Type.OpenArray) {
+			depth++;
+		} else if (type == Type.CloseObject || type == Type.CloseArray) {
+			depth--;
+		}
+		return type;
+	}
+
+	@Override
+	public Type type() {
+		return type;
+	}
+
+	@Override
+	public char[] textBuffer() {
+		return text;
+	}
+
+	@Override
+	public int textLength() {
+		return textLength;
+	}
+
+	@Override
+	public long position() {
+		return start;
+	}
+
+	@Override
+	public int depth() {
+		return depth;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			source.close();
+		}
+	}
+
+	private void step() throws JSONException {
+		if (!begun) {
+			begun = true;
+			take();
+			int i = 0;
+			while (peek(i) == TEXT) {
+				i++;
+			}
+			if (peek(i) != START) {
+				throw new JSONException("XML has no root element");
+			}
+			add(Type.OpenObject, null);
+			pushFrame();
+			return;
+		}
+
+		switch (take()) {
+		case START:
+			if (frames == 1 && !members[0] && eventText.equals(XMLEmitter.ROOT)) {
+				rootOpen = true;
+			} else {
+				member(eventText);
+			}
+			break;
+		case END:
+			if (rootOpen && frames == 1) {
+				rootOpen = false;
+				closeRun(0);
+			} else {
+				closeFrame();
+			}
+			break;
+		case TEXT:
+			if (!isBlank(eventText)) {
+				throw new JSONException("Text between elements: " + eventText.trim() + " at " + start);
+			}
+			break;
+		default:
+			closeFrame();
+			break;
+		}
+	}
+
+	private void member(String name) throws JSONException {
+		int frame = frames - 1;
+		String run = runKeys[frame];
+		if (run != null && run.equals(name)) {
+			add(Type.Comma, null);
+			element();
+			return;
+		}
+		if (run != null) {
+			add(Type.CloseArray, null);
+			runKeys[frame] = null;
+		}
+		if (members[frame]) {
+			add(Type.Comma, null);
+		}
+		members[frame] = true;
+		add(Type.KEY, name);
+		if (isRepeated(name)) {
+			add(Type.OpenArray, null);
+			runKeys[frame] = name;
+		}
+		element();
+	}
+
+	private void element() throws JSONException {
+		int i = 0;
+		while (peek(i) == TEXT) {
+			i++;
+		}
+		if (peek(i) == START) {
+			for (int j = 0; j < i; j++) {
+				take();
+				if (!isBlank(eventText)) {
+					throw new JSONException("Text before a child element: " + eventText.trim() + " at " + start);
+				}
+			}
+			add(Type.OpenObject, null);
+			pushFrame();
+			return;
+		}
+
+		String value = "";
+		for (int j = 0; j < i; j++) {
+			take();
+			value = value.isEmpty() ? eventText : value + eventText;
+		}
+		if (take() != END) {
+			throw new JSONException("Unclosed element at " + start);
+		}
+		if (isBlank(value)) {
+			add(Type.OpenObject, null);
+			add(Type.CloseObject, null);
+		} else {
+			add(isNumber(value) ? Type.NUMB : Type.STR, value);
+		}
+	}
+
+	private boolean isRepeated(String name) throws JSONException {
+		int level = 1;
+		int i = 0;
+		while (level > 0) {
+			if (i == lookahead) {
+				return false;
+			}
+			int kind = peek(i++);
+			if (kind == START) {
+				level++;
+			} else if (kind == END) {
+				level--;
+			} else if (kind == EOF) {
+				return false;
+			}
+		}
+		if (peek(i) == TEXT && isBlank(texts[(head + i) & (kinds.length - 1)])) {
+			i++;
+		}
+		return peek(i) == START && name.equals(texts[(head + i) & (kinds.length - 1)]);
+	}
+
+	private void closeFrame() throws JSONException {
+		if (frames <= 0) {
+			throw new JSONException("Unexpected end of XML at " + start);
+		}
+		frames--;
+		closeRun(frames);
+		add(Type.CloseObject, null);
+		members[frames] = false;
+		finished = frames == 0;
+	}
+
+	private void closeRun(int frame) {
+		if (runKeys[frame] != null) {
+			add(Type.CloseArray, null);
+			runKeys[frame] = null;
+		}
+	}
+
+	private void pushFrame() {
+		if (frames == runKeys.length) {
+			String[] grownKeys = new String[frames * 2];
+			boolean[] grownMembers = new boolean[frames * 2];
+			System.arraycopy(runKeys, 0, grownKeys, 0, frames);
+			System.arraycopy(members, 0, grownMembers, 0, frames);
+			runKeys = grownKeys;
+			members = grownMembers;
+		}
+		runKeys[frames] = null;
+		members[frames] = false;
+		frames++;
+	}
+
+	private void add(Type tokenType, String value) {
+		pendingTypes[pendingCount] = tokenType;
+		pendingTexts[pendingCount++] = value;
+	}
+
+	/**
+	 * Removes the next event from the events read ahead
+	 *
+	 * @return kind of the event, its name or text is in eventText
+	 */
+	private int take() throws JSONException {
+		peek(0);
+		int index = head & (kinds.length - 1);
+		int kind = kinds[index];
+		eventText = texts[index];
+		start = positions[index];
+		texts[index] = null;
+		head++;
+		count--;
+		return kind;
+	}
+
+	private int peek(int index) throws JSONException {
+		while (count <= index) {
+			read();
+		}
+		return kinds[(head + index) & (kinds.length - 1)];
+	}
+
+	/**
+	 * Reads the next element, text or end of the document from StAX. Adjacent
+	 * texts are joined
+	 */
+	private void read() throws JSONException {
+		try {
+			while (reader.hasNext()) {
+				int event = reader.next();
+				switch (event) {
+				case XMLStreamConstants.START_ELEMENT:
+					xmlDepth++;
+					String prefix = reader.getPrefix();
+					String name = reader.getLocalName();
+					append(START, prefix == null || prefix.isEmpty() ? name : prefix + ":" + name);
+					return;
+				case XMLStreamConstants.END_ELEMENT:
+					xmlDepth--;
+					append(END, null);
+					return;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					int last = (head + count - 1) & (kinds.length - 1);
+					boolean joined = count > 0 && kinds[last] == TEXT;
+					if (xmlDepth == 0 || (!joined && reader.isWhiteSpace())) {
+						break;
+					}
+					if (joined) {
+						texts[last] += reader.getText();
+						break;
+					}
+					append(TEXT, reader.getText());
+					return;
+				default:
+					break;
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new JSONException("Malformed XML: " + e.getMessage());
+		}
+		append(EOF, null);
+	}
+
+	private void append(int kind, String value) {
+		if (count == kinds.length) {
+			int[] grownKinds = new int[count * 2];
+			String[] grownTexts = new String[count * 2];
+			long[] grownPositions = new long[count * 2];
+			for (int i = 0; i < count; i++) {
+				int index = (head + i) & (kinds.length - 1);
+				grownKinds[i] = kinds[index];
+				grownTexts[i] = texts[index];
+				grownPositions[i] = positions[index];
+			}
+			kinds = grownKinds;
+			texts = grownTexts;
+			positions = grownPositions;
+			head = 0;
+		}
+		int index = (head + count) & (kinds.length - 1);
+		kinds[index] = kind;
+		texts[index] = value;
+		positions[index] = body.sourceOffset(reader.getLocation().getCharacterOffset());
+		count++;
+	}
+
+	private static boolean isBlank(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			if (!CharClass.isSpace(value.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true for the numbers of {@link CharClass#isNumber} without
+	 *         leading zeros, which JSON does not allow
+	 */
+	private static boolean isNumber(String value) {
+		int digits = value.charAt(0) == '-' ? 1 : 0;
+		if (value.length() > digits + 1 && value.charAt(digits) == '0' && CharClass.isDigit(value.charAt(digits + 1))) {
+			return false;
+		}
+		return CharClass.isNumber(value, 0, value.length());
+	}
+
+	private static XMLInputFactory newFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	}
+}
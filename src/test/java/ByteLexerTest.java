@@ -0,0 +1,53 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * @author DEVIAPHAN Lexing the UTF-8 bytes by the structural index gives the
+ *         tokens and the errors of lexing the string
+ */
+public class ByteLexerTest {
+	private static final String[] VALID = { "{\"a\":1}", "{\"a\":\"we\\\"ll\",\"b\":[true,false]}",
+			"{\"caf\u00e9\":{\"x\":\"\\u00e9\\\\\"},\"n\":-12.5}", "{ \"a\" : [ { \"b\" : \"\\\"]}\" } ] }" };
+	private static final String[] INVALID = { "{\"a\":\"we\\\"\\u004", "{\"a\":\"x\\q\"}", "{\"a\":1,}", "{\"a\":\"x\"",
+			"{\"a\":[1,\"x\"]}", "{\"a\":tru}", "{\"a\":\"\"}", "{\"a\":\"x\u0001\"}", "{\"a\":1}}" };
+
+	@Test
+	public void sameTokens() throws Exception {
+		JSONObject jObject = JSONObject.getInstance();
+		for (String json : VALID) {
+			TokenBuffer expected = jObject.buildTokenBuffer(json);
+			TokenBuffer actual = jObject.buildTokenBuffer(json.getBytes(StandardCharsets.UTF_8));
+			assertEquals(json, expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(json, expected.type(i), actual.type(i));
+				assertEquals(json, expected.text(i), actual.text(i));
+			}
+		}
+	}
+
+	@Test
+	public void sameErrors() {
+		for (String json : INVALID) {
+			assertEquals(json, error(json, false), error(json, true));
+		}
+	}
+
+	private static String error(String json, boolean bytes) {
+		JSONObject jObject = JSONObject.getInstance();
+		try {
+			if (bytes) {
+				jObject.buildTokenBuffer(json.getBytes(StandardCharsets.UTF_8));
+			} else {
+				jObject.buildTokenBuffer(json);
+			}
+		} catch (JSONException e) {
+			return e.getMessage();
+		}
+		fail("no error for " + json);
+		return null;
+	}
+}
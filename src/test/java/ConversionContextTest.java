@@ -0,0 +1,95 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * @author DEVIAPHAN Conversions in the contexts of several threads give the
+ *         XML of the sequential conversion, and a conversion inside another
+ *         one on the same thread gets a context of its own
+ */
+public class ConversionContextTest {
+	private static final String[] FILES = { "resourse/JSONFile1", "resourse/JSONFile2", "resourse/JSONFile3",
+			"resourse/JSONFile4", "resourse/JSONFile5", "resourse/BigJSON1" };
+	private static final int THREADS = 8;
+	private static final int ROUNDS = 200;
+
+	@Test
+	public void parallelConversionsMatchSequential() throws Exception {
+		Parser parser = Parser.getInstance();
+		List<String> documents = new ArrayList<>();
+		List<String> expected = new ArrayList<>();
+		for (String file : FILES) {
+			documents.add(read(file));
+			expected.add(parser.jsonToXML(file));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> results = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				int offset = t;
+				results.add(executor.submit(() -> {
+					start.await();
+					for (int round = 0; round < ROUNDS; round++) {
+						int i = (offset + round) % documents.size();
+						String xml = ConversionContext.forCurrentThread().convert(documents.get(i));
+						assertEquals(FILES[i], expected.get(i), xml);
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void nestedConversionGetsNewContext() throws Exception {
+		String json = read(FILES[0]);
+		String expected = Parser.getInstance().jsonToXML(FILES[0]);
+		ConversionContext outer = ConversionContext.forCurrentThread();
+		outer.begin();
+		try {
+			ConversionContext inner = ConversionContext.forCurrentThread();
+			assertNotSame(outer, inner);
+			assertEquals(expected, inner.convert(json));
+		} finally {
+			outer.reset();
+		}
+		assertSame(outer, ConversionContext.forCurrentThread());
+		assertEquals(expected, outer.convert(json));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void busyContextIsNotReused() throws Exception {
+		ConversionContext context = new ConversionContext();
+		context.begin();
+		try {
+			context.convert(read(FILES[0]));
+		} finally {
+			context.reset();
+		}
+	}
+
+	private static String read(String file) throws IOException {
+		return new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+	}
+}
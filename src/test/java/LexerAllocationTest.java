@@ -0,0 +1,85 @@
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+/**
+ * @author DEVIAPHAN The lexer allocates nothing per scanned char: lexing a
+ *         large document into a reused token buffer allocates no more than
+ *         lexing a small one, as measured by the allocation counter of the
+ *         thread
+ */
+public class LexerAllocationTest {
+	private static final int WARMUP = 100;
+	private static final int RUNS = 20;
+	/** Allowed difference per document, far less than one byte per char */
+	private static final long TOLERANCE = 256;
+
+	@Test
+	public void lexingDoesNotAllocatePerChar() throws Exception {
+		com.sun.management.ThreadMXBean threads = threadBean();
+		String small = document(10);
+		String large = document(2000);
+		TokenBuffer tokens = new TokenBuffer(null, 16);
+		JSONSyntax syntax = new JSONSyntax();
+		for (int i = 0; i < WARMUP; i++) {
+			lex(small, tokens, syntax);
+			lex(large, tokens, syntax);
+		}
+
+		long smallBytes = allocated(threads, small, tokens, syntax);
+		long largeBytes = allocated(threads, large, tokens, syntax);
+		assertTrue(large.length() + " chars allocated " + largeBytes + " bytes, " + small.length() + " chars "
+				+ smallBytes + " bytes", largeBytes <= smallBytes + TOLERANCE);
+	}
+
+	private static com.sun.management.ThreadMXBean threadBean() {
+		Object bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+		return threads;
+	}
+
+	/**
+	 * @return bytes allocated by one lexing of the document
+	 */
+	private static long allocated(com.sun.management.ThreadMXBean threads, String json, TokenBuffer tokens,
+			JSONSyntax syntax) throws JSONException {
+		long thread = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < RUNS; i++) {
+			lex(json, tokens, syntax);
+		}
+		return (threads.getThreadAllocatedBytes(thread) - before) / RUNS;
+	}
+
+	private static void lex(String json, TokenBuffer tokens, JSONSyntax syntax) throws JSONException {
+		tokens.reset(json, Integer.MAX_VALUE);
+		syntax.reset();
+		JSONObject.getInstance().buildTokenBuffer(json, 0, json.length(), tokens, syntax);
+		syntax.end(json.length());
+	}
+
+	/**
+	 * @return document with an array of records of strings, escapes, numbers,
+	 *         booleans and nested objects
+	 */
+	private static String document(int records) {
+		StringBuilder json = new StringBuilder(records * 128);
+		json.append("{\"records\": [");
+		for (int i = 0; i < records; i++) {
+			if (i > 0) {
+				json.append(",\n");
+			}
+			json.append("{\"id\": ").append(i).append(", \"price\": -").append(i).append(".25");
+			json.append(", \"name\": \"item \\\"").append(i).append("\\\" caf\\u00e9\"");
+			json.append(", \"active\": ").append(i % 2 == 0);
+			json.append(", \"owner\": {\"first\": \"Ann\", \"last\": \"Lee\"}}");
+		}
+		return json.append("]}").toString();
+	}
+}
@@ -0,0 +1,129 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * @author DEVIAPHAN The parallel conversion of a root array gives the bytes of
+ *         the sequential one: with escaped strings where the chunks are cut,
+ *         with element types which differ between the chunks and with values
+ *         after the array
+ */
+public class ParallelConverterTest {
+	private static final int MIN_CHUNK = 1 << 16;
+	private static final String TEXT = "a \\\"quoted\\\" ], {\\\\} \\u005d\\n caf\\u00e9 <&> ";
+
+	private static ForkJoinPool pool;
+
+	@BeforeClass
+	public static void startPool() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterClass
+	public static void stopPool() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void escapedStringsAtChunkBoundaries() throws Exception {
+		StringBuilder json = new StringBuilder("{\"items\": [");
+		for (int i = 0; json.length() < 8 * MIN_CHUNK; i++) {
+			if (i > 0) {
+				json.append(", ");
+			}
+			json.append("{\"id\": ").append(i).append(", \"text\": \"");
+			for (int j = 0; j <= i % 97; j++) {
+				json.append(TEXT);
+			}
+			json.append("\\\\\"}");
+		}
+		assertParallel(json.append("]}").toString());
+	}
+
+	@Test
+	public void escapedStringElements() throws Exception {
+		StringBuilder json = new StringBuilder("{\"lines\":[");
+		for (int i = 0; json.length() < 8 * MIN_CHUNK; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append('"').append(i).append(' ');
+			for (int j = 0; j <= i % 89; j++) {
+				json.append(TEXT);
+			}
+			json.append('"');
+		}
+		assertParallel(json.append("]}").toString());
+	}
+
+	@Test
+	public void mixedElementTypesFallBackToSequential() throws Exception {
+		StringBuilder json = new StringBuilder("{\"items\": [");
+		for (int i = 0; json.length() < 8 * MIN_CHUNK; i++) {
+			if (i > 0) {
+				json.append(", ");
+			}
+			if (json.length() < 4 * MIN_CHUNK) {
+				json.append("{\"id\": ").append(i).append(", \"text\": \"").append(TEXT).append("\"}");
+			} else {
+				json.append('"').append(TEXT).append('"');
+			}
+		}
+		assertSameError(json.append("]}").toString());
+	}
+
+	@Test
+	public void valuesAfterRootArray() throws Exception {
+		String items = items();
+		assertParallel("{\"items\": [" + items + "], \"count\": 3, \"meta\": {\"note\": \"" + TEXT
+				+ "\", \"ok\": true}, \"tags\": [\"a\", \"b\"]}");
+		assertParallel("{\"items\": [" + items + "]\n,\"last\" : -1.5 }  ");
+		assertSameError("{\"items\": [" + items + "], \"count\": }");
+		assertSameError("{\"items\": [" + items + "], \"count\": 3");
+		assertSameError("{\"items\": [" + items + "]} {");
+	}
+
+	private static String items() {
+		StringBuilder items = new StringBuilder();
+		for (int i = 0; items.length() < 8 * MIN_CHUNK; i++) {
+			if (i > 0) {
+				items.append(',');
+			}
+			items.append("{\"id\":").append(i).append(",\"text\":\"").append(TEXT).append("\"}");
+		}
+		return items.toString();
+	}
+
+	private static void assertParallel(String json) throws JSONException {
+		assertNotNull("no root array", ParallelConverter.RootArray.find(json, MIN_CHUNK));
+		assertEquals(sequential(json), new ParallelConverter(pool).convert(json));
+	}
+
+	private static void assertSameError(String json) {
+		assertNotNull("no root array", ParallelConverter.RootArray.find(json, MIN_CHUNK));
+		String expected;
+		try {
+			sequential(json);
+			fail("the sequential conversion did not fail");
+			return;
+		} catch (JSONException e) {
+			expected = e.getMessage();
+		}
+		try {
+			new ParallelConverter(pool).convert(json);
+			fail("the parallel conversion did not fail, expected " + expected);
+		} catch (JSONException e) {
+			assertEquals(expected, e.getMessage());
+		}
+	}
+
+	private static String sequential(String json) throws JSONException {
+		return XMLObject.getInstance().parseTokens(JSONObject.getInstance().buildTokenBuffer(json));
+	}
+}
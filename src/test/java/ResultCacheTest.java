@@ -0,0 +1,127 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author DEVIAPHAN Threads converting through one cache with a small memory
+ *         and disk tier, so files are evicted, read from the directory and
+ *         deleted by the trim while other threads use them
+ */
+public class ResultCacheTest {
+	private static final int FILES = 40;
+	private static final int THREADS = 16;
+	private static final int CALLS = 4000;
+
+	private Path directory;
+	private Path diskDir;
+
+	@Before
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("result-cache");
+		diskDir = directory.resolve("cache");
+	}
+
+	@After
+	public void deleteDirectory() throws IOException {
+		Parser.getInstance().setResultCache(null);
+		for (Path dir : new Path[] { diskDir, directory }) {
+			if (Files.isDirectory(dir)) {
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+					for (Path file : stream) {
+						if (!Files.isDirectory(file)) {
+							Files.delete(file);
+						}
+					}
+				}
+			}
+		}
+		Files.deleteIfExists(diskDir);
+		Files.deleteIfExists(directory);
+	}
+
+	@Test
+	public void concurrentConversionsWithSmallDiskTier() throws Exception {
+		Parser parser = Parser.getInstance();
+		List<String> paths = new ArrayList<>();
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < FILES; i++) {
+			Path file = directory.resolve("doc" + i + ".json");
+			Files.write(file, document(i).getBytes(StandardCharsets.UTF_8));
+			paths.add(file.toString());
+			expected.add(parser.jsonToXML(file.toString()));
+		}
+
+		ResultCache cache = new ResultCache(20000, diskDir, 20000);
+		parser.setResultCache(cache);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> results = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				Random random = new Random(t);
+				results.add(executor.submit(() -> {
+					start.await();
+					for (int call = 0; call < CALLS / THREADS; call++) {
+						int i = random.nextInt(FILES);
+						assertEquals(paths.get(i), expected.get(i), parser.jsonToXML(paths.get(i)));
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		ResultCache.Stats stats = cache.getStats();
+		assertEquals(CALLS, stats.getRequests());
+		assertEquals(stats.toString(), stats.getRequests(),
+				stats.getFileHits() + stats.getContentHits() + stats.getDiskHits() + stats.getMisses());
+		assertEquals(stats.toString(), diskSize(), stats.getDiskBytes());
+	}
+
+	private long diskSize() throws IOException {
+		long size = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(diskDir, "*.xml.gz")) {
+			for (Path file : stream) {
+				size += Files.size(file);
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return document of some kilobytes which differs for every seed
+	 */
+	private static String document(int seed) {
+		Random random = new Random(seed);
+		StringBuilder json = new StringBuilder("{\"records\": [");
+		for (int i = 0; i < 40; i++) {
+			if (i > 0) {
+				json.append(", ");
+			}
+			json.append("{\"id\": ").append(random.nextInt(1000000));
+			json.append(", \"name\": \"").append(Long.toString(random.nextLong(), 36)).append('"');
+			json.append(", \"active\": ").append(random.nextBoolean()).append('}');
+		}
+		return json.append("]}").toString();
+	}
+}
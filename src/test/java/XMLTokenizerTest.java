@@ -0,0 +1,62 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * @author DEVIAPHAN XML written by {@link XMLEmitter} is read back to the JSON
+ *         it was converted from, with or without the root tag
+ */
+public class XMLTokenizerTest {
+
+	@Test
+	public void rootTag() throws Exception {
+		assertRoundTrip("{\"a\":1,\"b\":[\"x\",\"y\"]}");
+		assertRoundTrip("{\"list\":[{\"id\":1},{\"id\":2}],\"name\":\"n\"}");
+	}
+
+	@Test
+	public void severalRootElements() throws Exception {
+		assertRoundTrip("{\"a\":{\"x\":1},\"b\":2}");
+		assertRoundTrip("{\"a\":{\"x\":1},\"b\":{\"y\":\"&<>\"},\"c\":[true,false]}");
+		assertRoundTrip("{\"a\":{\"x\":{\"y\":1}}}");
+	}
+
+	@Test
+	public void prologAndEncoding() throws Exception {
+		String body = "<a><x>caf\u00e9</x></a>\n<b>2</b>\n";
+		String expected = "{\"a\":{\"x\":\"caf\u00e9\"},\"b\":2}";
+		assertEquals(expected, toJSON(("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n<!-- c -->\n" + body)
+				.getBytes(StandardCharsets.ISO_8859_1)));
+		assertEquals(expected,
+				toJSON(("\uFEFF<?xml version=\"1.0\" encoding=\"UTF-16\"?>" + body).getBytes(StandardCharsets.UTF_16BE)));
+		StringWriter json = new StringWriter();
+		JSONObject.getInstance().parse(new XMLTokenizer(new StringReader(body)), new JSONWriter(json));
+		assertEquals(expected, json.toString());
+	}
+
+	@Test(expected = JSONException.class)
+	public void noRootElement() throws Exception {
+		toJSON("<?xml version=\"1.0\"?>\n".getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test(expected = JSONException.class)
+	public void textAfterRootElement() throws Exception {
+		toJSON("<a>1</a>text".getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void assertRoundTrip(String json) throws Exception {
+		String xml = XMLObject.getInstance().parseTokens(JSONObject.getInstance().buildTokenBuffer(json));
+		assertEquals(xml, json, toJSON(xml.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static String toJSON(byte[] xml) throws Exception {
+		StringWriter json = new StringWriter();
+		Parser.getInstance().xmlToJSON(new ByteArrayInputStream(xml), json);
+		return json.toString();
+	}
+}